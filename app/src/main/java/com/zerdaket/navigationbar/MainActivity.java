@@ -4,10 +4,17 @@ import android.os.Bundle;
 
 import com.zerdaket.navigation.NavigationBar;
 import com.zerdaket.navigation.NavigationManager;
+import com.zerdaket.navigation.NavigationTab;
+import com.zerdaket.navigation.NavigationTabs;
 import com.zerdaket.navigation.NormalItem;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+@NavigationTabs({
+        @NavigationTab(id = R.id.ni_home, fragment = HomeFragment.class),
+        @NavigationTab(id = R.id.ni_album, fragment = AlbumFragment.class),
+        @NavigationTab(id = R.id.ni_email, fragment = EmailFragment.class)
+})
 public class MainActivity extends AppCompatActivity {
 
     private NavigationBar mNavigationBar;
@@ -27,9 +34,7 @@ public class MainActivity extends AppCompatActivity {
         NavigationManager navigationManager =
                 new NavigationManager(mNavigationBar, getSupportFragmentManager(), R.id.fl_container);
 
-        navigationManager.bindFragment(R.id.ni_home, HomeFragment.class, HomeFragment.class.getSimpleName());
-        navigationManager.bindFragment(R.id.ni_album, AlbumFragment.class, AlbumFragment.class.getSimpleName());
-        navigationManager.bindFragment(R.id.ni_email, EmailFragment.class, EmailFragment.class.getSimpleName());
+        navigationManager.bindTabs(new MainActivity_NavigationTabs());
 
     }
 
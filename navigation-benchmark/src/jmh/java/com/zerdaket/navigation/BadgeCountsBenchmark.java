@@ -0,0 +1,31 @@
+package com.zerdaket.navigation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 数字角标的格式化，与每次创建字符串对比
+ */
+@State(Scope.Thread)
+public class BadgeCountsBenchmark {
+
+    private static final int MAX_INPUT = 150;
+
+    private int mCount;
+
+    @Benchmark
+    public String format() {
+        mCount = mCount >= MAX_INPUT ? 0 : mCount + 1;
+        return BadgeCounts.format(mCount);
+    }
+
+    @Benchmark
+    public String formatWithValueOf() {
+        mCount = mCount >= MAX_INPUT ? 0 : mCount + 1;
+        if (mCount <= 0) {
+            return null;
+        }
+        return mCount > BadgeCounts.MAX_COUNT ? BadgeCounts.MAX_COUNT + "+" : String.valueOf(mCount);
+    }
+}
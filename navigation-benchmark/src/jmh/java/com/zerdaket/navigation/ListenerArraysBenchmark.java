@@ -0,0 +1,39 @@
+package com.zerdaket.navigation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 导航栏和 Item 的监听保存在写时复制的数组中，添加和移除监听时复制数组
+ */
+@State(Scope.Thread)
+public class ListenerArraysBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int listenerCount;
+
+    private Listener[] mListeners;
+    private Listener mExtra;
+
+    @Setup
+    public void setUp() {
+        mListeners = new Listener[0];
+        for (int i = 0; i < listenerCount; i++) {
+            mListeners = ListenerArrays.add(mListeners, new Listener());
+        }
+        mExtra = new Listener();
+    }
+
+    @Benchmark
+    public Listener[] addAndRemove() {
+        mListeners = ListenerArrays.add(mListeners, mExtra);
+        mListeners = ListenerArrays.remove(mListeners, mExtra);
+        return mListeners;
+    }
+
+    static final class Listener {
+    }
+}
@@ -0,0 +1,43 @@
+package com.zerdaket.navigation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * 切换耗时直方图的记录和百分位查询
+ */
+@State(Scope.Thread)
+public class SwitchLatencyHistogramBenchmark {
+
+    private static final int SAMPLE_COUNT = 1024;
+
+    private final SwitchLatencyHistogram mHistogram = new SwitchLatencyHistogram();
+    private final long[] mSamples = new long[SAMPLE_COUNT];
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            // 1 ~ 64 毫秒
+            mSamples[i] = (1 + random.nextInt(64)) * 1000000L + random.nextInt(1000000);
+            mHistogram.record(mSamples[i]);
+        }
+    }
+
+    @Benchmark
+    public long record() {
+        mIndex = (mIndex + 1) & (SAMPLE_COUNT - 1);
+        mHistogram.record(mSamples[mIndex]);
+        return mHistogram.getCount();
+    }
+
+    @Benchmark
+    public long p99() {
+        return mHistogram.getP99Nanos();
+    }
+}
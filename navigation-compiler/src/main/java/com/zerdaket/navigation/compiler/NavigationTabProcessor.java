@@ -0,0 +1,276 @@
+package com.zerdaket.navigation.compiler;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.Messager;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * 处理 {@code com.zerdaket.navigation.NavigationTabs} ，为每个声明的类生成 {@code 类名_NavigationTabs} 路由表。
+ * 生成的代码通过 switch 直接 new 出 Fragment ，运行时不需要反射和 Class 查找。
+ * <p>
+ * 注解类在 Android 库中，这里只按名字读取注解的值，不依赖注解类本身。
+ */
+public class NavigationTabProcessor extends AbstractProcessor {
+
+    static final String NAVIGATION_TABS = "com.zerdaket.navigation.NavigationTabs";
+    static final String TAB_TABLE = "com.zerdaket.navigation.NavigationTabTable";
+    static final String FRAGMENT = "androidx.fragment.app.Fragment";
+    static final String SUFFIX = "_NavigationTabs";
+
+    private Filer mFiler;
+    private Messager mMessager;
+    private Elements mElements;
+    private Types mTypes;
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        mFiler = processingEnv.getFiler();
+        mMessager = processingEnv.getMessager();
+        mElements = processingEnv.getElementUtils();
+        mTypes = processingEnv.getTypeUtils();
+    }
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(NAVIGATION_TABS);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        TypeElement annotation = mElements.getTypeElement(NAVIGATION_TABS);
+        if (annotation == null) {
+            return false;
+        }
+        for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (!(element instanceof TypeElement)) {
+                continue;
+            }
+            TypeElement type = (TypeElement) element;
+            List<Tab> tabs = readTabs(type);
+            if (tabs != null) {
+                write(type, tabs);
+            }
+        }
+        return true;
+    }
+
+    private List<Tab> readTabs(TypeElement type) {
+        AnnotationMirror tabsMirror = findAnnotation(type, NAVIGATION_TABS);
+        if (tabsMirror == null) {
+            return null;
+        }
+        List<Tab> tabs = new ArrayList<>();
+        boolean valid = true;
+        for (AnnotationValue value : asList(getValue(tabsMirror, "value"))) {
+            AnnotationMirror tabMirror = (AnnotationMirror) value.getValue();
+            int id = (Integer) getValue(tabMirror, "id").getValue();
+            TypeMirror fragmentType = (TypeMirror) getValue(tabMirror, "fragment").getValue();
+            String tag = (String) getValue(tabMirror, "tag").getValue();
+
+            TypeElement fragment = (TypeElement) ((DeclaredType) fragmentType).asElement();
+            if (!checkFragment(type, tabMirror, fragment)) {
+                valid = false;
+                continue;
+            }
+            for (Tab tab : tabs) {
+                if (tab.id == id) {
+                    error(type, tabMirror, "Duplicate navigation item id " + id + " in @NavigationTabs");
+                    valid = false;
+                }
+            }
+            if (tag.isEmpty()) {
+                tag = fragment.getSimpleName().toString();
+            }
+            tabs.add(new Tab(id, fragment.getQualifiedName().toString(), tag));
+        }
+        return valid ? tabs : null;
+    }
+
+    private boolean checkFragment(TypeElement type, AnnotationMirror tabMirror, TypeElement fragment) {
+        TypeElement fragmentBase = mElements.getTypeElement(FRAGMENT);
+        if (fragmentBase != null && !mTypes.isAssignable(fragment.asType(), fragmentBase.asType())) {
+            error(type, tabMirror, fragment.getQualifiedName() + " must extend " + FRAGMENT);
+            return false;
+        }
+        Set<Modifier> modifiers = fragment.getModifiers();
+        if (!modifiers.contains(Modifier.PUBLIC) || modifiers.contains(Modifier.ABSTRACT)
+                || (fragment.getNestingKind().isNested() && !modifiers.contains(Modifier.STATIC))) {
+            error(type, tabMirror, fragment.getQualifiedName() + " must be a public, non-abstract, top-level or static class");
+            return false;
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(fragment.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+                return true;
+            }
+        }
+        error(type, tabMirror, fragment.getQualifiedName() + " must have a public no-arg constructor");
+        return false;
+    }
+
+    private void write(TypeElement type, List<Tab> tabs) {
+        String packageName = getPackageName(type);
+        String className = getFlatName(type, packageName) + SUFFIX;
+        StringBuilder out = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("/**\n")
+                .append(" * Generated by navigation-compiler from ").append(type.getQualifiedName()).append(". Do not modify.\n")
+                .append(" */\n")
+                .append("public final class ").append(className).append(" implements ").append(TAB_TABLE).append(" {\n\n");
+
+        out.append("    @Override\n")
+                .append("    public int getTabCount() {\n")
+                .append("        return ").append(tabs.size()).append(";\n")
+                .append("    }\n\n");
+
+        out.append("    @Override\n")
+                .append("    public int getItemId(int index) {\n")
+                .append("        switch (index) {\n");
+        for (int i = 0; i < tabs.size(); i++) {
+            out.append("            case ").append(i).append(":\n")
+                    .append("                return ").append(tabs.get(i).id).append(";\n");
+        }
+        appendDefault(out);
+
+        out.append("    @Override\n")
+                .append("    public String getTag(int index) {\n")
+                .append("        switch (index) {\n");
+        for (int i = 0; i < tabs.size(); i++) {
+            out.append("            case ").append(i).append(":\n")
+                    .append("                return \"").append(escape(tabs.get(i).tag)).append("\";\n");
+        }
+        appendDefault(out);
+
+        out.append("    @Override\n")
+                .append("    public ").append(FRAGMENT).append(" createFragment(int index) {\n")
+                .append("        switch (index) {\n");
+        for (int i = 0; i < tabs.size(); i++) {
+            out.append("            case ").append(i).append(":\n")
+                    .append("                return new ").append(tabs.get(i).fragmentClass).append("();\n");
+        }
+        appendDefault(out);
+
+        out.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        Writer writer = null;
+        try {
+            JavaFileObject file = mFiler.createSourceFile(qualifiedName, type);
+            writer = file.openWriter();
+            writer.write(out.toString());
+        } catch (IOException e) {
+            mMessager.printMessage(Diagnostic.Kind.ERROR, "Unable to write " + qualifiedName + ": " + e.getMessage(), type);
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static void appendDefault(StringBuilder out) {
+        out.append("            default:\n")
+                .append("                throw new IndexOutOfBoundsException(\"index: \" + index);\n")
+                .append("        }\n")
+                .append("    }\n\n");
+    }
+
+    private String getPackageName(TypeElement type) {
+        PackageElement packageElement = mElements.getPackageOf(type);
+        return packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+    }
+
+    private static String getFlatName(TypeElement type, String packageName) {
+        String name = type.getQualifiedName().toString();
+        if (!packageName.isEmpty()) {
+            name = name.substring(packageName.length() + 1);
+        }
+        return name.replace('.', '_');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private AnnotationMirror findAnnotation(Element element, String name) {
+        for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+            TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (annotationType.getQualifiedName().contentEquals(name)) {
+                return mirror;
+            }
+        }
+        return null;
+    }
+
+    private AnnotationValue getValue(AnnotationMirror mirror, String name) {
+        Map<? extends ExecutableElement, ? extends AnnotationValue> values =
+                mElements.getElementValuesWithDefaults(mirror);
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+            if (entry.getKey().getSimpleName().contentEquals(name)) {
+                return entry.getValue();
+            }
+        }
+        throw new IllegalStateException("Missing value " + name + " in " + mirror);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<? extends AnnotationValue> asList(AnnotationValue value) {
+        Object list = value.getValue();
+        if (list instanceof List) {
+            return (List<? extends AnnotationValue>) list;
+        }
+        // 只有一个元素时可以省略大括号
+        return Collections.singletonList(value);
+    }
+
+    private void error(Element element, AnnotationMirror mirror, String message) {
+        mMessager.printMessage(Diagnostic.Kind.ERROR, message, element, mirror);
+    }
+
+    private static final class Tab {
+
+        final int id;
+        final String fragmentClass;
+        final String tag;
+
+        Tab(int id, String fragmentClass, String tag) {
+            this.id = id;
+            this.fragmentClass = fragmentClass;
+            this.tag = tag;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.zerdaket.navigation;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * 从 {@link IconAtlas} 中截取图标绘制，选中或按下时使用选中颜色的区域
+ */
+final class AtlasIconDrawable extends Drawable {
+
+    private final Bitmap mBitmap;
+    private final Rect mNormalRect;
+    private final Rect mSelectedRect;
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private boolean mSelected;
+
+    AtlasIconDrawable(Bitmap bitmap, Rect normalRect, Rect selectedRect) {
+        mBitmap = bitmap;
+        mNormalRect = normalRect;
+        mSelectedRect = selectedRect;
+    }
+
+    @Override
+    public void draw(@NonNull Canvas canvas) {
+        canvas.drawBitmap(mBitmap, mSelected ? mSelectedRect : mNormalRect, getBounds(), mPaint);
+    }
+
+    @Override
+    public boolean isStateful() {
+        return true;
+    }
+
+    @Override
+    protected boolean onStateChange(int[] state) {
+        boolean selected = false;
+        for (int s : state) {
+            if (s == android.R.attr.state_selected || s == android.R.attr.state_pressed) {
+                selected = true;
+                break;
+            }
+        }
+        if (selected == mSelected) {
+            return false;
+        }
+        mSelected = selected;
+        invalidateSelf();
+        return true;
+    }
+
+    @Override
+    public int getIntrinsicWidth() {
+        return mNormalRect.width();
+    }
+
+    @Override
+    public int getIntrinsicHeight() {
+        return mNormalRect.height();
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        if (mPaint.getAlpha() != alpha) {
+            mPaint.setAlpha(alpha);
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    public int getAlpha() {
+        return mPaint.getAlpha();
+    }
+
+    @Override
+    public void setColorFilter(@Nullable ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
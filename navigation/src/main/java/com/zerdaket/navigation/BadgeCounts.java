@@ -0,0 +1,63 @@
+package com.zerdaket.navigation;
+
+import androidx.annotation.Nullable;
+
+/**
+ * 数字角标的内容，预先生成所有可能的字符串，格式化时不再创建字符串。
+ * 不依赖 Android ，基准测试模块直接编译这个文件
+ */
+final class BadgeCounts {
+
+    /**
+     * 数字角标的上限，超过时展示 "99+"
+     */
+    static final int MAX_COUNT = 99;
+
+    private static final String[] COUNT_TEXTS = new String[MAX_COUNT + 2];
+
+    static {
+        for (int i = 1; i <= MAX_COUNT; i++) {
+            COUNT_TEXTS[i] = String.valueOf(i);
+        }
+        COUNT_TEXTS[MAX_COUNT + 1] = MAX_COUNT + "+";
+    }
+
+    private BadgeCounts() {
+    }
+
+    /**
+     * @param count 数字
+     * @return 角标内容，小于等于 0 时为 null
+     */
+    @Nullable
+    static String format(int count) {
+        if (count <= 0) {
+            return null;
+        }
+        return COUNT_TEXTS[Math.min(count, MAX_COUNT + 1)];
+    }
+
+    /**
+     * @param text 角标内容
+     * @return 与 {@link #format(int)} 的结果相同时返回对应的数字，"99+" 为 MAX_COUNT + 1 ，其他内容为 -1
+     */
+    static int indexOf(String text) {
+        if (COUNT_TEXTS[MAX_COUNT + 1].equals(text)) {
+            return MAX_COUNT + 1;
+        }
+        int length = text.length();
+        // 没有前导 0 的数字才与格式化的结果相同
+        if (length == 0 || length > 3 || text.charAt(0) == '0') {
+            return -1;
+        }
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            count = count * 10 + c - '0';
+        }
+        return count > MAX_COUNT ? -1 : count;
+    }
+}
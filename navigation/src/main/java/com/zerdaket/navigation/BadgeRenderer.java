@@ -0,0 +1,175 @@
+package com.zerdaket.navigation;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.text.TextPaint;
+import android.util.TypedValue;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.collection.LruCache;
+
+import java.util.Arrays;
+
+/**
+ * 绘制角标：空内容为小圆点，一个字符为正圆形，多个字符为上下两边为直线的椭圆。
+ * 画笔和矩形只创建一次，数字角标的文字宽度在设置字号时全部测量好，其他内容按最近使用缓存，
+ * 不使用软件绘制层，预热后更新角标不再分配内存。
+ */
+final class BadgeRenderer {
+
+    private static final float TEXT_SIZE_SP = 10;
+    private static final float DOT_SIZE_DP = 8;
+    private static final float RADIUS_DP = 3.5f;
+    /**
+     * 缓存文字宽度的非数字内容个数，这类角标内容通常只有少数几种
+     */
+    private static final int MAX_CACHED_TEXTS = 16;
+    private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final TextPaint mTextPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint.FontMetrics mFontMetrics = new Paint.FontMetrics();
+    private final RectF mRect = new RectF();
+    /**
+     * 按数字索引的 {@link BadgeCounts} 内容宽度
+     */
+    private final float[] mCountWidths = new float[BadgeCounts.MAX_COUNT + 2];
+    /**
+     * 按字符数索引的数字角标最大宽度，用于预留尺寸
+     */
+    private final float[] mMaxCountWidths = new float[String.valueOf(BadgeCounts.MAX_COUNT).length() + 2];
+    private final LruCache<String, Float> mTextWidths = new LruCache<>(MAX_CACHED_TEXTS);
+    private int mMeasureCount;
+
+    private final int mDotSize;
+    private final int mRadius;
+    private final int mVerticalPadding;
+    private int mHorizontalPadding;
+    private int mDiffWH;
+
+    BadgeRenderer(Context context) {
+        float density = context.getResources().getDisplayMetrics().density;
+        mDotSize = (int) (DOT_SIZE_DP * density + 0.5f);
+        mRadius = (int) (density * RADIUS_DP);
+        mVerticalPadding = (int) (mRadius * 1.5f);
+        mPaint.setColor(Color.RED);
+        mTextPaint.setColor(Color.WHITE);
+        setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, TEXT_SIZE_SP,
+                context.getResources().getDisplayMetrics()));
+    }
+
+    void setTextSize(float textSize) {
+        mTextPaint.setTextSize(textSize);
+        mTextPaint.getFontMetrics(mFontMetrics);
+        Arrays.fill(mMaxCountWidths, 0);
+        for (int i = 1; i < mCountWidths.length; i++) {
+            String text = BadgeCounts.format(i);
+            mCountWidths[i] = measureText(text);
+            mMaxCountWidths[text.length()] = Math.max(mMaxCountWidths[text.length()], mCountWidths[i]);
+        }
+        mTextWidths.evictAll();
+        float textWidth = textSize / 4;
+        mDiffWH = (int) (Math.abs(textSize - textWidth) / 2);
+        mHorizontalPadding = mVerticalPadding + mDiffWH;
+    }
+
+    void setColor(@ColorInt int color) {
+        mPaint.setColor(color);
+    }
+
+    void setTextColor(@ColorInt int color) {
+        mTextPaint.setColor(color);
+    }
+
+    /**
+     * @param content 角标内容，空字符串时为小圆点
+     * @return 角标占用的宽度
+     */
+    int getWidth(@NonNull String content) {
+        if (content.isEmpty()) {
+            return mDotSize;
+        }
+        return (int) Math.ceil(getTextWidth(content)) + mHorizontalPadding * 2;
+    }
+
+    /**
+     * 数字角标按同样字符数的最宽数字预留宽度，同样字符数的数字切换时不需要重新布局
+     *
+     * @param content 角标内容，空字符串时为小圆点
+     * @return 需要为角标预留的宽度，不小于 {@link #getWidth(String)}
+     */
+    int getReservedWidth(@NonNull String content) {
+        if (BadgeCounts.indexOf(content) > 0) {
+            return (int) Math.ceil(mMaxCountWidths[content.length()]) + mHorizontalPadding * 2;
+        }
+        return getWidth(content);
+    }
+
+    /**
+     * @param content 角标内容，空字符串时为小圆点
+     * @return 角标占用的高度
+     */
+    int getHeight(@NonNull String content) {
+        if (content.isEmpty()) {
+            return mDotSize;
+        }
+        return (int) Math.ceil(mFontMetrics.bottom - mFontMetrics.top) + mVerticalPadding * 2;
+    }
+
+    /**
+     * 在 (left, top) 开始、大小为 {@link #getWidth(String)} x {@link #getHeight(String)} 的区域内绘制角标
+     *
+     * @param content 角标内容，空字符串时为小圆点
+     */
+    void draw(Canvas canvas, @NonNull String content, float left, float top) {
+        int width = getWidth(content);
+        int height = getHeight(content);
+        if (content.isEmpty()) {
+            mRect.set(left, top, left + width, top + height);
+            canvas.drawOval(mRect, mPaint);
+            return;
+        }
+        if (content.length() == 1) {
+            float diameter = Math.max(width, height) - 2 * mRadius;
+            canvas.drawCircle(left + width / 2f, top + height / 2f, diameter * 0.4f, mPaint);
+        } else {
+            float rectWidth = width - mDiffWH;
+            float rectHeight = height - mRadius - 4;
+            mRect.set(left + mDiffWH, top + mRadius + 4, left + rectWidth, top + rectHeight);
+            float r = Math.min(rectWidth, rectHeight) * 0.4f;
+            canvas.drawRoundRect(mRect, r, r, mPaint);
+        }
+        float textWidth = getTextWidth(content);
+        canvas.drawText(content, left + (width - textWidth) / 2, top + mVerticalPadding - mFontMetrics.top, mTextPaint);
+    }
+
+    private float getTextWidth(String content) {
+        int index = BadgeCounts.indexOf(content);
+        if (index > 0) {
+            return mCountWidths[index];
+        }
+        Float width = mTextWidths.get(content);
+        if (width == null) {
+            // 超出数量时只移除最久未使用的一个
+            width = measureText(content);
+            mTextWidths.put(content, width);
+        }
+        return width;
+    }
+
+    private float measureText(String content) {
+        mMeasureCount++;
+        return mTextPaint.measureText(content);
+    }
+
+    /**
+     * @return 测量文字宽度的次数
+     */
+    @VisibleForTesting
+    int getMeasureCount() {
+        return mMeasureCount;
+    }
+}
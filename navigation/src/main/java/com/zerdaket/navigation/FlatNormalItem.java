@@ -0,0 +1,269 @@
+package com.zerdaket.navigation;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.Drawable;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+import android.view.accessibility.AccessibilityNodeInfo;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.res.ResourcesCompat;
+
+/**
+ * 与 {@link NormalItem} 外观和属性相同，但没有子 View ，图标、标题和角标在自身的 onMeasure 和 onDraw 中处理。
+ * 支持所有 ni_* 属性，布局中把 NormalItem 替换为 FlatNormalItem 即可。
+ */
+public class FlatNormalItem extends NavigationItem {
+
+    private final ItemRenderer mRenderer;
+    private ColorStateList mTint;
+
+    public FlatNormalItem(@NonNull Context context) {
+        this(context, null);
+    }
+
+    public FlatNormalItem(@NonNull Context context, @Nullable AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public FlatNormalItem(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        setWillNotDraw(false);
+        mRenderer = new ItemRenderer(context);
+
+        final TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.NormalItem);
+
+        int iconRes = array.getResourceId(R.styleable.NormalItem_ni_icon, 0);
+
+        Drawable drawable = iconRes == 0 ? array.getDrawable(R.styleable.NormalItem_ni_icon) : null;
+
+        String title = array.getString(R.styleable.NormalItem_ni_title);
+
+        int colorTint = array.getResourceId(R.styleable.NormalItem_ni_colorTint, R.color.ui_selector_navi_item);
+
+        boolean showBadge = array.getBoolean(R.styleable.NormalItem_ni_showBadge, false);
+
+        String badgeContent = array.getString(R.styleable.NormalItem_ni_badgeContent);
+
+        int badgeTextColor = array.getColor(R.styleable.NormalItem_ni_badgeTextColor, Color.WHITE);
+
+        int badgeColor = array.getColor(R.styleable.NormalItem_ni_badgeColor, Color.RED);
+
+        boolean isIconTint = array.getBoolean(R.styleable.NormalItem_ni_isIconTint, false);
+
+        array.recycle();
+
+        mTint = ResourcesCompat.getColorStateList(getResources(), colorTint, context.getTheme());
+
+        if (iconRes == 0) {
+            setIcon(drawable, isIconTint);
+        } else {
+            Drawable old = mRenderer.getIcon();
+            mRenderer.setColorTint(mTint, false);
+            onIconChanged(old, mRenderer.setIconResource(iconRes, isIconTint));
+        }
+        setTitle(title);
+        setColorTint(mTint);
+        if (showBadge) {
+            showBadge(badgeContent);
+        } else {
+            clearBadge();
+        }
+        setBadgeColor(badgeColor);
+        setBadgeTextColor(badgeTextColor);
+    }
+
+    /**
+     * @param drawable Item 的图标
+     */
+    public void setIcon(@Nullable Drawable drawable) {
+        setIcon(drawable, false);
+    }
+
+    /**
+     * @param drawable   Item 的图标
+     * @param isIconTint 图标是否着色
+     */
+    public void setIcon(@Nullable Drawable drawable, boolean isIconTint) {
+        Drawable old = mRenderer.getIcon();
+        mRenderer.setColorTint(mTint, false);
+        onIconChanged(old, mRenderer.setIcon(drawable, isIconTint));
+    }
+
+    private void onIconChanged(@Nullable Drawable old, boolean sizeChanged) {
+        if (old != null) {
+            old.setCallback(null);
+        }
+        Drawable icon = mRenderer.getIcon();
+        if (icon != null) {
+            icon.setCallback(this);
+        }
+        // 图标尺寸固定，只有图标出现或消失时需要重新布局
+        if (sizeChanged) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    /**
+     * @param title Item 的标题
+     */
+    public void setTitle(@Nullable String title) {
+        if (mRenderer.setTitle(title)) {
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    /**
+     * @param colorTint Item 着色
+     */
+    public void setColorTint(ColorStateList colorTint) {
+        setColorTint(colorTint, false);
+    }
+
+    /**
+     * @param colorTint  Item 着色
+     * @param isIconTint 图标是否着色
+     */
+    public void setColorTint(ColorStateList colorTint, boolean isIconTint) {
+        mTint = colorTint;
+        Drawable old = mRenderer.getIcon();
+        mRenderer.setColorTint(colorTint, isIconTint);
+        onIconChanged(old, false);
+    }
+
+    /**
+     * 展示小圆点
+     */
+    public void showBadge() {
+        mRenderer.setBadge("");
+        invalidate();
+        NavigationMetrics.countBadgeUpdate();
+    }
+
+    /**
+     * @param content 展示角标的内容
+     */
+    public void showBadge(String content) {
+        mRenderer.setBadge(TextUtils.isEmpty(content) ? "" : content);
+        invalidate();
+        NavigationMetrics.countBadgeUpdate();
+    }
+
+    /**
+     * @param color 角标字体颜色
+     */
+    public void setBadgeTextColor(@ColorInt int color) {
+        mRenderer.setBadgeTextColor(color);
+        invalidate();
+    }
+
+    /**
+     * @param color 角标背景颜色
+     */
+    public void setBadgeColor(@ColorInt int color) {
+        mRenderer.setBadgeColor(color);
+        invalidate();
+    }
+
+    @Override
+    int getAtlasIconRes() {
+        return mRenderer.getAtlasIconRes();
+    }
+
+    @Override
+    void applyIconAtlas(@Nullable IconAtlas atlas) {
+        Drawable old = mRenderer.getIcon();
+        if (mRenderer.setIconAtlas(atlas)) {
+            onIconChanged(old, false);
+        }
+    }
+
+    @Override
+    void applyBadge(@Nullable String badge) {
+        if (badge == null) {
+            clearBadge();
+        } else {
+            showBadge(badge);
+        }
+    }
+
+    /**
+     * 清除角标
+     */
+    public void clearBadge() {
+        mRenderer.setBadge(null);
+        invalidate();
+        NavigationMetrics.countBadgeUpdate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        boolean traced = NavigationMetrics.beginSection(NavigationMetrics.SECTION_ITEM_MEASURE);
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        int width = resolveSize(Math.max(mRenderer.getDesiredWidth() + horizontalPadding,
+                getSuggestedMinimumWidth()), widthMeasureSpec);
+        int height = resolveSize(Math.max(mRenderer.getDesiredHeight(width - horizontalPadding)
+                + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight()), heightMeasureSpec);
+        setMeasuredDimension(width, height);
+        NavigationMetrics.endSection(traced);
+        NavigationMetrics.countMeasure(getId());
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        mRenderer.setBounds(getPaddingLeft(), getPaddingTop(),
+                getWidth() - getPaddingRight(), getHeight() - getPaddingBottom());
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        mRenderer.draw(canvas);
+    }
+
+    @Override
+    protected void drawableStateChanged() {
+        super.drawableStateChanged();
+        // 父类构造方法中可能已经调用
+        if (mRenderer == null) {
+            return;
+        }
+        boolean changed = mRenderer.setSelected(isSelected());
+        changed |= mRenderer.setPressed(isPressed());
+        if (changed) {
+            invalidate();
+        }
+    }
+
+    @Override
+    protected boolean verifyDrawable(@NonNull Drawable who) {
+        return (mRenderer != null && who == mRenderer.getIcon()) || super.verifyDrawable(who);
+    }
+
+    @Override
+    public void jumpDrawablesToCurrentState() {
+        super.jumpDrawablesToCurrentState();
+        Drawable icon = mRenderer == null ? null : mRenderer.getIcon();
+        if (icon != null) {
+            icon.jumpToCurrentState();
+        }
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        super.onInitializeAccessibilityNodeInfo(info);
+        // 没有子 TextView ，标题作为节点的文本
+        if (getContentDescription() == null) {
+            info.setText(mRenderer.getTitle());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.zerdaket.navigation;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.util.SparseIntArray;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+import androidx.appcompat.content.res.AppCompatResources;
+import androidx.collection.LruCache;
+import androidx.core.graphics.drawable.DrawableCompat;
+
+import java.util.Arrays;
+
+/**
+ * 把一组着色图标按未选中和选中两种颜色预先绘制到同一张 Bitmap 上，Item 绘制时只从中截取对应的区域，
+ * 矢量图标不再按 Item 和状态分别光栅化。
+ * <p>
+ * 图集在进程内按屏幕密度、夜间模式、着色和图标缓存，其中任一项变化时重新生成。
+ * 着色使用 SRC_IN ，图标本身的颜色不影响结果，主题只通过着色和夜间模式起作用。
+ * 按下状态与选中状态颜色不同，或不可用状态与可用状态颜色不同的着色不能使用图集。
+ */
+final class IconAtlas {
+
+    private static final float ICON_SIZE_DP = 24;
+    /**
+     * 相邻图标之间的空隙，缩放绘制时不会采样到旁边的图标
+     */
+    private static final int GUTTER = 1;
+    private static final int MAX_ATLASES = 4;
+
+    private static final int[] STATE_NORMAL = new int[]{android.R.attr.state_enabled};
+    private static final int[] STATE_SELECTED = new int[]{android.R.attr.state_enabled, android.R.attr.state_selected};
+    private static final int[] STATE_PRESSED = new int[]{android.R.attr.state_enabled, android.R.attr.state_pressed};
+    private static final int[] STATE_DISABLED = new int[0];
+    private static final int[] STATE_DISABLED_SELECTED = new int[]{android.R.attr.state_selected};
+
+    private static final LruCache<Key, IconAtlas> sCache = new LruCache<>(MAX_ATLASES);
+    private static int sBuildCount;
+
+    private final Key mKey;
+    private final Bitmap mBitmap;
+    private final int mCellSize;
+    private final int mColumns;
+    /**
+     * 图标资源 Id 对应的格子序号，未选中在前，选中紧随其后
+     */
+    private final SparseIntArray mCells;
+
+    private IconAtlas(Key key, Bitmap bitmap, int cellSize, int columns, SparseIntArray cells) {
+        mKey = key;
+        mBitmap = bitmap;
+        mCellSize = cellSize;
+        mColumns = columns;
+        mCells = cells;
+    }
+
+    /**
+     * @param iconRes 需要放入图集的图标，为 0 的会被忽略
+     * @param tint    图标的着色
+     * @return 图集的 key ，没有图标或着色不能使用图集时为 null
+     */
+    @Nullable
+    static Key createKey(Context context, int[] iconRes, @Nullable ColorStateList tint) {
+        if (tint == null) {
+            return null;
+        }
+        int normalColor = tint.getColorForState(STATE_NORMAL, tint.getDefaultColor());
+        int selectedColor = tint.getColorForState(STATE_SELECTED, normalColor);
+        if (!matches(tint, normalColor, selectedColor)) {
+            return null;
+        }
+        int[] icons = new int[iconRes.length];
+        int count = 0;
+        for (int res : iconRes) {
+            if (res != 0) {
+                icons[count++] = res;
+            }
+        }
+        if (count == 0) {
+            return null;
+        }
+        icons = Arrays.copyOf(icons, count);
+        Arrays.sort(icons);
+        Configuration configuration = context.getResources().getConfiguration();
+        return new Key(icons, context.getResources().getDisplayMetrics().densityDpi,
+                configuration.uiMode & Configuration.UI_MODE_NIGHT_MASK, normalColor, selectedColor);
+    }
+
+    @Nullable
+    static IconAtlas getCached(@NonNull Key key) {
+        return sCache.get(key);
+    }
+
+    /**
+     * 获取图集，缓存中没有时绘制并放入缓存，图标较多时耗时较长，需要在后台线程调用
+     */
+    @WorkerThread
+    @NonNull
+    static IconAtlas obtain(Context context, @NonNull Key key) {
+        IconAtlas atlas = sCache.get(key);
+        if (atlas == null) {
+            atlas = build(context, key);
+            sCache.put(key, atlas);
+        }
+        return atlas;
+    }
+
+    private static IconAtlas build(Context context, Key key) {
+        int cellSize = (int) (ICON_SIZE_DP * context.getResources().getDisplayMetrics().density + 0.5f);
+        int cellCount = key.iconRes.length * 2;
+        int columns = (int) Math.ceil(Math.sqrt(cellCount));
+        int rows = (cellCount + columns - 1) / columns;
+        int stride = cellSize + GUTTER;
+        Bitmap bitmap = Bitmap.createBitmap(columns * stride, rows * stride, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        SparseIntArray cells = new SparseIntArray(key.iconRes.length);
+        int cell = 0;
+        for (int res : key.iconRes) {
+            Drawable source = AppCompatResources.getDrawable(context, res);
+            if (source == null) {
+                continue;
+            }
+            Drawable drawable = DrawableCompat.wrap(source.mutate());
+            cells.put(res, cell);
+            for (int color : new int[]{key.normalColor, key.selectedColor}) {
+                int left = (cell % columns) * stride;
+                int top = (cell / columns) * stride;
+                DrawableCompat.setTint(drawable, color);
+                drawable.setBounds(left, top, left + cellSize, top + cellSize);
+                drawable.draw(canvas);
+                cell++;
+            }
+        }
+        bitmap.prepareToDraw();
+        synchronized (IconAtlas.class) {
+            sBuildCount++;
+        }
+        return new IconAtlas(key, bitmap, cellSize, columns, cells);
+    }
+
+    @NonNull
+    Key getKey() {
+        return mKey;
+    }
+
+    /**
+     * @return 图集中是否有该图标，并且颜色与着色一致
+     */
+    boolean canDraw(@DrawableRes int iconRes, @Nullable ColorStateList tint) {
+        if (tint == null || mCells.indexOfKey(iconRes) < 0) {
+            return false;
+        }
+        return matches(tint, mKey.normalColor, mKey.selectedColor);
+    }
+
+    /**
+     * 图集只有未选中和选中两种颜色，按下状态需要与选中一致，不可用状态需要与可用时一致
+     */
+    private static boolean matches(ColorStateList tint, int normalColor, int selectedColor) {
+        int defaultColor = tint.getDefaultColor();
+        return tint.getColorForState(STATE_NORMAL, defaultColor) == normalColor
+                && tint.getColorForState(STATE_SELECTED, normalColor) == selectedColor
+                && tint.getColorForState(STATE_PRESSED, normalColor) == selectedColor
+                && tint.getColorForState(STATE_DISABLED, normalColor) == normalColor
+                && tint.getColorForState(STATE_DISABLED_SELECTED, selectedColor) == selectedColor;
+    }
+
+    /**
+     * @return 从图集中绘制该图标的 Drawable ，调用前需要通过 {@link #canDraw(int, ColorStateList)} 检查
+     */
+    @NonNull
+    Drawable newDrawable(@DrawableRes int iconRes) {
+        int cell = mCells.get(iconRes);
+        return new AtlasIconDrawable(mBitmap, getCellRect(cell), getCellRect(cell + 1));
+    }
+
+    private Rect getCellRect(int cell) {
+        int stride = mCellSize + GUTTER;
+        int left = (cell % mColumns) * stride;
+        int top = (cell / mColumns) * stride;
+        return new Rect(left, top, left + mCellSize, top + mCellSize);
+    }
+
+    @VisibleForTesting
+    static synchronized int getBuildCount() {
+        return sBuildCount;
+    }
+
+    @VisibleForTesting
+    static synchronized void clear() {
+        sCache.evictAll();
+        sBuildCount = 0;
+    }
+
+    static final class Key {
+
+        final int[] iconRes;
+        final int densityDpi;
+        final int nightMode;
+        final int normalColor;
+        final int selectedColor;
+        private final int mHashCode;
+
+        Key(int[] iconRes, int densityDpi, int nightMode, int normalColor, int selectedColor) {
+            this.iconRes = iconRes;
+            this.densityDpi = densityDpi;
+            this.nightMode = nightMode;
+            this.normalColor = normalColor;
+            this.selectedColor = selectedColor;
+            int hashCode = Arrays.hashCode(iconRes);
+            hashCode = 31 * hashCode + densityDpi;
+            hashCode = 31 * hashCode + nightMode;
+            hashCode = 31 * hashCode + normalColor;
+            mHashCode = 31 * hashCode + selectedColor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return densityDpi == other.densityDpi && nightMode == other.nightMode
+                    && normalColor == other.normalColor && selectedColor == other.selectedColor
+                    && Arrays.equals(iconRes, other.iconRes);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
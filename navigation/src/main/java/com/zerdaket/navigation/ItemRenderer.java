@@ -0,0 +1,364 @@
+package com.zerdaket.navigation;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.TypedValue;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
+import androidx.annotation.Nullable;
+import androidx.appcompat.content.res.AppCompatResources;
+
+/**
+ * 在一块区域内直接绘制 Item 的图标、标题和角标，不创建子 View 。
+ * 尺寸和位置与 {@link NormalItem} 的子 View 布局一致：图标 24dp ，标题 12sp （没有图标时 14sp ），
+ * 两者竖直居中，角标中心相对 Item 中心偏移 (16dp, -12dp) 。
+ */
+final class ItemRenderer {
+
+    private static final float ICON_SIZE_DP = 24;
+    private static final float TITLE_SIZE_SP = 12;
+    private static final float TITLE_SIZE_NO_ICON_SP = 14;
+    private static final float BADGE_OFFSET_X_DP = 16;
+    private static final float BADGE_OFFSET_Y_DP = -12;
+
+    private static final int[] STATE_NORMAL = new int[]{android.R.attr.state_enabled};
+    private static final int[] STATE_SELECTED = new int[]{android.R.attr.state_enabled, android.R.attr.state_selected};
+    private static final int[] STATE_PRESSED = new int[]{android.R.attr.state_enabled, android.R.attr.state_pressed};
+    private static final int[] STATE_SELECTED_PRESSED = new int[]{android.R.attr.state_enabled,
+            android.R.attr.state_selected, android.R.attr.state_pressed};
+
+    private final Context mContext;
+    private final Rect mBounds = new Rect();
+    private final TextPaint mTitlePaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+    private final BadgeRenderer mBadgeRenderer;
+
+    private final int mIconSize;
+    private final float mBadgeOffsetX;
+    private final float mBadgeOffsetY;
+
+    private Drawable mIcon;
+    /**
+     * 未着色的原图，重新着色时总是基于原图，不对已经着色的图标再次包装
+     */
+    private Drawable mIconSource;
+    /**
+     * 图标的资源 Id ，不为 0 时着色后的图标从 {@link TintedIconCache} 获取
+     */
+    private int mIconRes;
+    private boolean mIconTint;
+    private IconAtlas mIconAtlas;
+    private ColorStateList mTint;
+    private String mTitle;
+    /**
+     * 标题的排版结果，只在标题、字号或可用宽度变化时重新创建
+     */
+    private Layout mTitleLayout;
+    private int mTitleLayoutMaxWidth = -1;
+    private String mBadge;
+    private boolean mSelected;
+    private boolean mPressed;
+    /**
+     * 最近一次绑定的内容，再次绑定时只更新变化的部分
+     */
+    private NavigationItemSpec mSpec;
+
+    ItemRenderer(Context context) {
+        mContext = context;
+        mIconSize = dp2px(ICON_SIZE_DP);
+        mBadgeOffsetX = dp2px(BADGE_OFFSET_X_DP);
+        mBadgeOffsetY = dp2px(BADGE_OFFSET_Y_DP);
+        mTitlePaint.setTextSize(sp2px(TITLE_SIZE_SP));
+        mBadgeRenderer = new BadgeRenderer(context);
+    }
+
+    /**
+     * 与 {@link NormalItem} 的绑定一致，图标按当前的着色填充
+     *
+     * @param spec Item 的内容
+     * @return 是否需要重新测量，只有角标变化时只需要重绘
+     */
+    boolean bind(NavigationItemSpec spec) {
+        NavigationItemSpec old = mSpec;
+        mSpec = spec;
+        boolean sizeChanged = false;
+        if (old == null || old.getIconRes() != spec.getIconRes()) {
+            sizeChanged = setIconResource(spec.getIconRes(), true);
+        }
+        if (old == null || !NavigationItemSpec.areEqual(old.getTitle(), spec.getTitle())) {
+            sizeChanged |= setTitle(spec.getTitle());
+        }
+        if (old == null || !NavigationItemSpec.areEqual(old.getBadge(), spec.getBadge())) {
+            setBadge(spec.getBadge());
+        }
+        return sizeChanged;
+    }
+
+    @Nullable
+    NavigationItemSpec getSpec() {
+        return mSpec;
+    }
+
+    /**
+     * @return 内容是否变化，需要重新测量
+     */
+    boolean setIcon(@Nullable Drawable drawable, boolean isIconTint) {
+        mIconRes = 0;
+        mIconSource = drawable;
+        mIconTint = isIconTint;
+        return updateIcon();
+    }
+
+    /**
+     * @param iconRes 图标资源，为 0 时不展示图标
+     * @return 内容是否变化，需要重新测量
+     */
+    boolean setIconResource(@DrawableRes int iconRes, boolean isIconTint) {
+        mIconRes = iconRes;
+        mIconSource = null;
+        mIconTint = isIconTint;
+        return updateIcon();
+    }
+
+    private boolean updateIcon() {
+        Drawable drawable;
+        if (mIconRes != 0) {
+            if (!mIconTint) {
+                drawable = AppCompatResources.getDrawable(mContext, mIconRes);
+            } else if (mIconAtlas != null && mIconAtlas.canDraw(mIconRes, mTint)) {
+                drawable = mIconAtlas.newDrawable(mIconRes);
+            } else {
+                drawable = TintedIconCache.get(mContext, mIconRes, mTint);
+            }
+        } else {
+            drawable = mIconTint ? TintedIconCache.tint(mIconSource, mTint) : mIconSource;
+        }
+        boolean visibilityChanged = (mIcon == null) != (drawable == null);
+        mIcon = drawable;
+        if (mIcon != null) {
+            mIcon.setState(getState());
+        }
+        if (visibilityChanged) {
+            mTitlePaint.setTextSize(sp2px(mIcon == null ? TITLE_SIZE_NO_ICON_SP : TITLE_SIZE_SP));
+            mTitleLayout = null;
+        }
+        return visibilityChanged;
+    }
+
+    @Nullable
+    Drawable getIcon() {
+        return mIcon;
+    }
+
+    /**
+     * @return 内容是否变化，需要重新测量
+     */
+    boolean setTitle(@Nullable String title) {
+        if (TextUtils.isEmpty(title)) {
+            title = null;
+        }
+        if (NavigationItemSpec.areEqual(mTitle, title)) {
+            return false;
+        }
+        mTitle = title;
+        mTitleLayout = null;
+        return true;
+    }
+
+    @Nullable
+    String getTitle() {
+        return mTitle;
+    }
+
+    /**
+     * @return 可以从 {@link IconAtlas} 绘制的图标资源，没有时为 0
+     */
+    int getAtlasIconRes() {
+        return mIconTint ? mIconRes : 0;
+    }
+
+    /**
+     * @param atlas 图标图集，null 时使用普通的着色图标。图集中的图标尺寸相同，不需要重新测量
+     * @return 图标是否变化，需要重绘
+     */
+    boolean setIconAtlas(@Nullable IconAtlas atlas) {
+        if (mIconAtlas == atlas) {
+            return false;
+        }
+        mIconAtlas = atlas;
+        if (mIconRes == 0 || !mIconTint) {
+            return false;
+        }
+        updateIcon();
+        return true;
+    }
+
+    /**
+     * @param isIconTint 是否按新的着色从原图重新着色图标，false 时图标不变
+     */
+    void setColorTint(ColorStateList tint, boolean isIconTint) {
+        mTint = tint;
+        if (isIconTint) {
+            mIconTint = true;
+            updateIcon();
+        }
+    }
+
+    /**
+     * @param badge null 时不展示角标，空字符串时展示小圆点
+     */
+    void setBadge(@Nullable String badge) {
+        mBadge = badge;
+    }
+
+    @Nullable
+    String getBadge() {
+        return mBadge;
+    }
+
+    void setBadgeColor(@ColorInt int color) {
+        mBadgeRenderer.setColor(color);
+    }
+
+    void setBadgeTextColor(@ColorInt int color) {
+        mBadgeRenderer.setTextColor(color);
+    }
+
+    /**
+     * @return 状态是否变化，需要重绘
+     */
+    boolean setSelected(boolean selected) {
+        if (mSelected == selected) {
+            return false;
+        }
+        mSelected = selected;
+        onStateChanged();
+        return true;
+    }
+
+    boolean isSelected() {
+        return mSelected;
+    }
+
+    /**
+     * @return 状态是否变化，需要重绘
+     */
+    boolean setPressed(boolean pressed) {
+        if (mPressed == pressed) {
+            return false;
+        }
+        mPressed = pressed;
+        onStateChanged();
+        return true;
+    }
+
+    private void onStateChanged() {
+        if (mIcon != null) {
+            mIcon.setState(getState());
+        }
+    }
+
+    private int[] getState() {
+        if (mSelected) {
+            return mPressed ? STATE_SELECTED_PRESSED : STATE_SELECTED;
+        }
+        return mPressed ? STATE_PRESSED : STATE_NORMAL;
+    }
+
+    /**
+     * @return 图标和标题不换行时需要的宽度
+     */
+    int getDesiredWidth() {
+        int width = mIcon == null ? 0 : mIconSize;
+        if (mTitle != null) {
+            width = Math.max(width, (int) Math.ceil(Layout.getDesiredWidth(mTitle, mTitlePaint)));
+        }
+        return width;
+    }
+
+    /**
+     * @param maxWidth 可用宽度
+     * @return 图标和标题的总高度
+     */
+    int getDesiredHeight(int maxWidth) {
+        int height = mIcon == null ? 0 : mIconSize;
+        Layout layout = getTitleLayout(maxWidth);
+        if (layout != null) {
+            height += layout.getHeight();
+        }
+        return height;
+    }
+
+    void setBounds(int left, int top, int right, int bottom) {
+        mBounds.set(left, top, right, bottom);
+    }
+
+    Rect getBounds() {
+        return mBounds;
+    }
+
+    @Nullable
+    private Layout getTitleLayout(int maxWidth) {
+        if (mTitle == null || maxWidth <= 0) {
+            return null;
+        }
+        if (mTitleLayout == null || mTitleLayoutMaxWidth != maxWidth) {
+            int width = Math.min(maxWidth, (int) Math.ceil(Layout.getDesiredWidth(mTitle, mTitlePaint)));
+            mTitleLayout = new StaticLayout(mTitle, mTitlePaint, width, Layout.Alignment.ALIGN_CENTER, 1f, 0f, true);
+            mTitleLayoutMaxWidth = maxWidth;
+        }
+        return mTitleLayout;
+    }
+
+    void draw(Canvas canvas) {
+        Layout titleLayout = getTitleLayout(mBounds.width());
+        int iconHeight = mIcon == null ? 0 : mIconSize;
+        int contentHeight = iconHeight + (titleLayout == null ? 0 : titleLayout.getHeight());
+        int centerX = mBounds.centerX();
+        int top = mBounds.top + (mBounds.height() - contentHeight) / 2;
+
+        if (mIcon != null) {
+            int left = centerX - mIconSize / 2;
+            mIcon.setBounds(left, top, left + mIconSize, top + mIconSize);
+            mIcon.draw(canvas);
+        }
+
+        if (titleLayout != null) {
+            int defaultColor = mTint == null ? Color.BLACK : mTint.getDefaultColor();
+            mTitlePaint.setColor(mTint == null ? defaultColor : mTint.getColorForState(getState(), defaultColor));
+            int save = canvas.save();
+            canvas.translate(centerX - titleLayout.getWidth() / 2f, top + iconHeight);
+            titleLayout.draw(canvas);
+            canvas.restoreToCount(save);
+        }
+
+        if (mBadge != null) {
+            drawBadge(canvas, centerX + mBadgeOffsetX, mBounds.exactCenterY() + mBadgeOffsetY);
+        }
+    }
+
+    private void drawBadge(Canvas canvas, float centerX, float centerY) {
+        mBadgeRenderer.draw(canvas, mBadge,
+                centerX - mBadgeRenderer.getWidth(mBadge) / 2f,
+                centerY - mBadgeRenderer.getHeight(mBadge) / 2f);
+    }
+
+    private int dp2px(float dp) {
+        float scale = mContext.getResources().getDisplayMetrics().density;
+        return (int) (dp * scale + 0.5f);
+    }
+
+    private float sp2px(float sp) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, sp,
+                mContext.getResources().getDisplayMetrics());
+    }
+}
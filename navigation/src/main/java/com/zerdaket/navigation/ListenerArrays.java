@@ -0,0 +1,41 @@
+package com.zerdaket.navigation;
+
+import java.util.Arrays;
+
+/**
+ * 写时复制的监听数组，添加和移除时创建新数组，分发时遍历当时的数组，
+ * 分发不分配内存，监听在回调中添加或移除自己也不会影响本次分发
+ */
+final class ListenerArrays {
+
+    private ListenerArrays() {
+    }
+
+    static <T> T[] add(T[] listeners, T listener) {
+        if (listener == null || indexOf(listeners, listener) >= 0) {
+            return listeners;
+        }
+        T[] result = Arrays.copyOf(listeners, listeners.length + 1);
+        result[listeners.length] = listener;
+        return result;
+    }
+
+    static <T> T[] remove(T[] listeners, T listener) {
+        int index = indexOf(listeners, listener);
+        if (index < 0) {
+            return listeners;
+        }
+        T[] result = Arrays.copyOf(listeners, listeners.length - 1);
+        System.arraycopy(listeners, index + 1, result, index, listeners.length - index - 1);
+        return result;
+    }
+
+    private static <T> int indexOf(T[] listeners, T listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
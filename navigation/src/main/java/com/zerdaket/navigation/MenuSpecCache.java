@@ -0,0 +1,109 @@
+package com.zerdaket.navigation;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.content.res.XmlResourceParser;
+import android.util.AttributeSet;
+import android.util.Xml;
+import android.view.InflateException;
+import android.view.View;
+
+import androidx.annotation.MenuRes;
+import androidx.annotation.VisibleForTesting;
+import androidx.collection.SparseArrayCompat;
+import androidx.core.os.ConfigurationCompat;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 进程内按 menu 资源 Id 缓存解析后的 Item ，标题和语言相关，语言变化后重新解析
+ */
+final class MenuSpecCache {
+
+    private static final String TAG_ITEM = "item";
+
+    private static final SparseArrayCompat<Entry> sCache = new SparseArrayCompat<>();
+    private static int sHitCount;
+    private static int sMissCount;
+
+    private MenuSpecCache() {
+    }
+
+    static synchronized List<NavigationItemSpec> get(Context context, @MenuRes int menuRes) {
+        Locale locale = ConfigurationCompat.getLocales(context.getResources().getConfiguration()).get(0);
+        Entry entry = sCache.get(menuRes);
+        if (entry != null && NavigationItemSpec.areEqual(entry.locale, locale)) {
+            sHitCount++;
+            return entry.specs;
+        }
+        sMissCount++;
+        List<NavigationItemSpec> specs = Collections.unmodifiableList(parse(context, menuRes));
+        sCache.put(menuRes, new Entry(locale, specs));
+        return specs;
+    }
+
+    private static List<NavigationItemSpec> parse(Context context, @MenuRes int menuRes) {
+        List<NavigationItemSpec> specs = new ArrayList<>();
+        XmlResourceParser parser = context.getResources().getLayout(menuRes);
+        try {
+            AttributeSet attrs = Xml.asAttributeSet(parser);
+            int type;
+            while ((type = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (type != XmlPullParser.START_TAG || !TAG_ITEM.equals(parser.getName())) {
+                    continue;
+                }
+                TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.NavigationMenuItem);
+                int id = array.getResourceId(R.styleable.NavigationMenuItem_android_id, View.NO_ID);
+                CharSequence title = array.getText(R.styleable.NavigationMenuItem_android_title);
+                int iconRes = array.getResourceId(R.styleable.NavigationMenuItem_android_icon, 0);
+                array.recycle();
+                if (id == View.NO_ID) {
+                    id = View.generateViewId();
+                }
+                specs.add(new NavigationItemSpec(id, title == null ? null : title.toString(), iconRes));
+            }
+        } catch (XmlPullParserException e) {
+            throw new InflateException("Error inflating menu XML", e);
+        } catch (IOException e) {
+            throw new InflateException("Error inflating menu XML", e);
+        } finally {
+            parser.close();
+        }
+        return specs;
+    }
+
+    @VisibleForTesting
+    static synchronized int getHitCount() {
+        return sHitCount;
+    }
+
+    @VisibleForTesting
+    static synchronized int getMissCount() {
+        return sMissCount;
+    }
+
+    @VisibleForTesting
+    static synchronized void clear() {
+        sCache.clear();
+        sHitCount = 0;
+        sMissCount = 0;
+    }
+
+    private static final class Entry {
+
+        final Locale locale;
+        final List<NavigationItemSpec> specs;
+
+        Entry(Locale locale, List<NavigationItemSpec> specs) {
+            this.locale = locale;
+            this.specs = specs;
+        }
+    }
+}
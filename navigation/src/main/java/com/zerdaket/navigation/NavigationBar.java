@@ -1,30 +1,150 @@
 package com.zerdaket.navigation;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
 import android.content.Context;
+import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.text.TextPaint;
 import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.Choreographer;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.animation.DecelerateInterpolator;
 import android.widget.LinearLayout;
 
+import androidx.annotation.ColorInt;
 import androidx.annotation.IdRes;
+import androidx.annotation.IntDef;
+import androidx.annotation.MenuRes;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.collection.SparseArrayCompat;
+import androidx.core.content.ContextCompat;
+import androidx.core.content.res.ResourcesCompat;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.accessibility.AccessibilityNodeInfoCompat;
+import androidx.customview.widget.ExploreByTouchHelper;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Created by zerdaket on 2019-11-14.
  */
 public class NavigationBar extends LinearLayout {
 
+    /**
+     * 不展示选中指示器
+     */
+    public static final int INDICATOR_NONE = 0;
+    /**
+     * 选中 Item 后面的圆角背景
+     */
+    public static final int INDICATOR_PILL = 1;
+    /**
+     * 选中 Item 底部的横线
+     */
+    public static final int INDICATOR_UNDERLINE = 2;
+
     private static final String LOG_TAG = NavigationBar.class.getSimpleName();
 
+    private static final float INDICATOR_PILL_INSET_HORIZONTAL_DP = 8;
+    private static final float INDICATOR_PILL_INSET_VERTICAL_DP = 6;
+    private static final float INDICATOR_UNDERLINE_INSET_DP = 16;
+    private static final float INDICATOR_UNDERLINE_HEIGHT_DP = 2;
+
+    @IntDef({INDICATOR_NONE, INDICATOR_PILL, INDICATOR_UNDERLINE})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface IndicatorStyle {
+    }
+
     private int mSelectedId = View.NO_ID;
     private SelectedChangeListener mChildOnSelectedChangeListener;
+    private ReselectedListener mChildOnReselectedListener;
     private boolean mProtectFromSelectedChange = false;
     private OnSelectedChangeListener mOnSelectedChangeListener;
     private OnSelectedChangeListener mOnSelectedChangeManagerListener;
+    /**
+     * 写时复制，分发时不分配内存，监听可以在回调中添加或移除自己
+     */
+    private OnSelectedChangeListener[] mOnSelectedChangeListeners = new OnSelectedChangeListener[0];
+    private OnReselectedListener[] mOnReselectedListeners = new OnReselectedListener[0];
     private PassThroughHierarchyChangeListener mPassThroughListener;
+    private long mSelectStartNanos;
+    /**
+     * 当前存在 View 的 Item ，按 Id 索引
+     */
+    private final SparseArrayCompat<NavigationItem> mItems = new SparseArrayCompat<>();
+    private RecyclerView mScrollView;
+    private ScrollItemAdapter mScrollAdapter;
+    /**
+     * 平铺模式下所有 Item 直接绘制在导航栏上，不创建子 View
+     */
+    private boolean mFlat;
+    private final ArrayList<NavigationItemSpec> mFlatSpecs = new ArrayList<>();
+    private final SparseArrayCompat<ItemRenderer> mFlatRenderers = new SparseArrayCompat<>();
+    private ColorStateList mFlatTint;
+    private FlatAccessibilityHelper mFlatHelper;
+    private int mFlatPressedIndex = -1;
+    /**
+     * 数字角标，每个 Item 一个原子变量，任意线程写入，每帧在主线程统一应用一次
+     */
+    private volatile BadgeSlot[] mBadgeSlots = new BadgeSlot[0];
+    private final Object mBadgeSlotsLock = new Object();
+    private final AtomicBoolean mBadgeFlushScheduled = new AtomicBoolean();
+    private Choreographer mChoreographer;
+    private BadgeFlusher mBadgeFlusher;
+    /**
+     * 选中指示器，所有切换共用一个动画和一组画笔、矩形，动画进行中再次切换时从当前位置移向新的 Item
+     */
+    private int mIndicatorStyle = INDICATOR_NONE;
+    private boolean mIndicatorColorSet;
+    private final Paint mIndicatorPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF mIndicatorRect = new RectF();
+    private final RectF mIndicatorFrom = new RectF();
+    private final RectF mIndicatorTo = new RectF();
+    private final Rect mIndicatorItemBounds = new Rect();
+    private boolean mIndicatorDrawn;
+    private ValueAnimator mIndicatorAnimator;
+    /**
+     * 异步创建 Item ，每次设置 Item 时递增，过期的结果会被丢弃
+     */
+    private int mAsyncGeneration;
+    private boolean mAsyncPending;
+    private int mPlaceholderHeight;
+    private Handler mMainHandler;
+    /**
+     * 图标图集，每次请求时递增，过期的结果会被丢弃
+     */
+    private boolean mIconAtlasEnabled;
+    private IconAtlas mIconAtlas;
+    private int mIconAtlasGeneration;
 
     public NavigationBar(Context context) {
         super(context);
@@ -42,15 +162,37 @@ public class NavigationBar extends LinearLayout {
             mSelectedId = value;
         }
 
+        int menuRes = attributes.getResourceId(R.styleable.NavigationBar_nb_menu, 0);
+
+        boolean flat = attributes.getBoolean(R.styleable.NavigationBar_nb_flat, false);
+
+        if (attributes.hasValue(R.styleable.NavigationBar_nb_indicatorColor)) {
+            setIndicatorColor(attributes.getColor(R.styleable.NavigationBar_nb_indicatorColor, Color.TRANSPARENT));
+        }
+        setIndicatorStyle(attributes.getInt(R.styleable.NavigationBar_nb_indicator, INDICATOR_NONE));
+
+        mIconAtlasEnabled = attributes.getBoolean(R.styleable.NavigationBar_nb_iconAtlas, false);
+
         attributes.recycle();
 
         init();
+
+        if (flat) {
+            setFlat(true);
+        }
+
+        if (menuRes != 0) {
+            inflateMenu(menuRes);
+        }
     }
 
     private void init() {
         mChildOnSelectedChangeListener = new SelectedStateTracker();
+        mChildOnReselectedListener = new ReselectedTracker();
         mPassThroughListener = new PassThroughHierarchyChangeListener();
         super.setOnHierarchyChangeListener(mPassThroughListener);
+        mChoreographer = Choreographer.getInstance();
+        mBadgeFlusher = new BadgeFlusher();
     }
 
 
@@ -78,10 +220,14 @@ public class NavigationBar extends LinearLayout {
             mProtectFromSelectedChange = false;
             setSelectedId(mSelectedId);
         }
+        updateIconAtlas();
     }
 
     @Override
     public void addView(View child, int index, ViewGroup.LayoutParams params) {
+        if (mFlat && child instanceof NavigationItem) {
+            throw new IllegalStateException("NavigationItem can't be added in flat mode, use setItems() instead");
+        }
         if (child instanceof NavigationItem) {
             final NavigationItem item = (NavigationItem) child;
             if (item.isSelected()) {
@@ -107,6 +253,8 @@ public class NavigationBar extends LinearLayout {
             return;
         }
 
+        mSelectStartNanos = 0;
+
         if (mSelectedId != View.NO_ID) {
             setSelectedStateForView(mSelectedId, false);
         }
@@ -119,20 +267,902 @@ public class NavigationBar extends LinearLayout {
     }
 
     private void setSelectedId(@IdRes int id) {
+        boolean traced = NavigationMetrics.beginSection(NavigationMetrics.SECTION_SELECT);
         mSelectedId = id;
+        moveIndicator();
 
         if (mOnSelectedChangeListener != null) {
             mOnSelectedChangeListener.onSelectedChanged(this, mSelectedId);
         }
+        for (OnSelectedChangeListener listener : mOnSelectedChangeListeners) {
+            listener.onSelectedChanged(this, mSelectedId);
+        }
         if (mOnSelectedChangeManagerListener != null) {
             mOnSelectedChangeManagerListener.onSelectedChanged(this, mSelectedId);
         }
+        NavigationMetrics.endSection(traced);
+        NavigationMetrics.countSelectionDispatch();
     }
 
     private void setSelectedStateForView(int viewId, boolean selected) {
-        View selectedView = findViewById(viewId);
-        if (selectedView instanceof NavigationItem) {
-            selectedView.setSelected(selected);
+        if (mFlat) {
+            ItemRenderer renderer = mFlatRenderers.get(viewId);
+            if (renderer != null && renderer.setSelected(selected)) {
+                invalidate();
+                mFlatHelper.invalidateVirtualView(indexOfFlatItem(viewId));
+            }
+            return;
+        }
+        // 滚动模式下不在屏幕内的 Item 没有 View ，绑定时再根据 mSelectedId 设置
+        NavigationItem item = mItems.get(viewId);
+        if (item != null) {
+            item.setSelected(selected);
+        }
+    }
+
+    /**
+     * 根据 Item 列表更新导航栏，与当前的 Item 对比，只移除、添加、移动或者更新有变化的 Item ，
+     * 已存在的 Item 会被复用，选中的 Item 不变，选中的 Item 被移除时清除选中
+     *
+     * @param specs 所有 Item
+     */
+    public void setItems(List<NavigationItemSpec> specs) {
+        cancelAsyncItems();
+        applyItems(specs, null);
+    }
+
+    private void applyItems(List<NavigationItemSpec> specs, @Nullable SparseArrayCompat<NormalItem> prebuilt) {
+        if (mFlat) {
+            updateFlatItems(specs);
+        } else if (mScrollView != null) {
+            mScrollAdapter.setItems(specs, mScrollAdapter.mItemWidth);
+        } else {
+            diffItems(specs, prebuilt);
+        }
+        boolean selectedExists = false;
+        for (int i = 0, size = specs.size(); i < size; i++) {
+            if (specs.get(i).getId() == mSelectedId) {
+                selectedExists = true;
+                break;
+            }
+        }
+        if (mSelectedId != View.NO_ID && !selectedExists) {
+            clearSelect();
+        }
+        updateIconAtlas();
+    }
+
+    /**
+     * 异步设置 Item ，图标、着色和 Item 的 View 在后台线程创建，标题使用 {@link androidx.core.text.PrecomputedTextCompat}
+     * 预先计算排版，主线程只添加创建好的 View 。Item 添加前导航栏按 Item 的高度占位。
+     * 平铺模式和滚动模式下后台只准备 Item 列表
+     *
+     * @param specs    所有 Item
+     * @param executor 后台线程
+     */
+    public void setItemsAsync(@NonNull List<NavigationItemSpec> specs, @NonNull Executor executor) {
+        startAsyncItems(new AsyncItemsTask(new ArrayList<>(specs), 0), executor);
+    }
+
+    /**
+     * 异步解析 menu 资源并创建 Item ，与 {@link #setItemsAsync(List, Executor)} 相同
+     *
+     * @param menuRes  menu 资源
+     * @param executor 后台线程
+     */
+    public void inflateMenuAsync(@MenuRes int menuRes, @NonNull Executor executor) {
+        startAsyncItems(new AsyncItemsTask(null, menuRes), executor);
+    }
+
+    private void startAsyncItems(AsyncItemsTask task, Executor executor) {
+        cancelAsyncItems();
+        task.mGeneration = mAsyncGeneration;
+        task.mBuildViews = !mFlat && mScrollView == null;
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+        if (mPlaceholderHeight == 0) {
+            // 与 NormalItem 的内容高度一致：24dp 图标加一行 12sp 的标题
+            TextPaint paint = new TextPaint();
+            paint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, 12, getResources().getDisplayMetrics()));
+            Paint.FontMetricsInt metrics = paint.getFontMetricsInt();
+            mPlaceholderHeight = dp2px(24) + metrics.bottom - metrics.top;
+        }
+        mAsyncPending = true;
+        requestLayout();
+        executor.execute(task);
+    }
+
+    private void cancelAsyncItems() {
+        mAsyncGeneration++;
+        if (mAsyncPending) {
+            mAsyncPending = false;
+            requestLayout();
+        }
+    }
+
+    private void onAsyncItemsReady(AsyncItemsTask task) {
+        if (task.mGeneration != mAsyncGeneration) {
+            return;
+        }
+        mAsyncPending = false;
+        SparseArrayCompat<NormalItem> prebuilt = null;
+        // 准备期间切换了模式时不使用已创建的 View
+        if (task.mItems != null && !mFlat && mScrollView == null) {
+            prebuilt = new SparseArrayCompat<>(task.mItems.size());
+            for (NormalItem item : task.mItems) {
+                prebuilt.put(item.getId(), item);
+            }
+        }
+        applyItems(task.mSpecs, prebuilt);
+        requestLayout();
+    }
+
+    /**
+     * 在后台线程准备 Item ，View 的创建与 {@code AsyncLayoutInflater} 一样不依赖主线程
+     */
+    private class AsyncItemsTask implements Runnable {
+
+        private final int mMenuRes;
+        private final Context mContext;
+        private List<NavigationItemSpec> mSpecs;
+        private ArrayList<NormalItem> mItems;
+        private int mGeneration;
+        private boolean mBuildViews;
+
+        AsyncItemsTask(@Nullable List<NavigationItemSpec> specs, @MenuRes int menuRes) {
+            mSpecs = specs;
+            mMenuRes = menuRes;
+            mContext = getContext();
+        }
+
+        @Override
+        public void run() {
+            if (mSpecs == null) {
+                mSpecs = MenuSpecCache.get(mContext, mMenuRes);
+            }
+            if (mBuildViews) {
+                mItems = new ArrayList<>(mSpecs.size());
+                for (int i = 0, size = mSpecs.size(); i < size; i++) {
+                    NormalItem item = new NormalItem(mContext, mSpecs.get(i));
+                    item.precomputeTitle();
+                    mItems.add(item);
+                }
+            }
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onAsyncItemsReady(AsyncItemsTask.this);
+                }
+            });
+        }
+    }
+
+    private void diffItems(List<NavigationItemSpec> specs, @Nullable SparseArrayCompat<NormalItem> prebuilt) {
+        SparseArrayCompat<NavigationItemSpec> newSpecs = new SparseArrayCompat<>(specs.size());
+        for (int i = 0, size = specs.size(); i < size; i++) {
+            newSpecs.put(specs.get(i).getId(), specs.get(i));
+        }
+        // 移除不再存在的 Item
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            if (child instanceof NavigationItem && !newSpecs.containsKey(child.getId())) {
+                removeViewAt(i);
+            }
+        }
+        boolean moved = false;
+        for (int i = 0, size = specs.size(); i < size; i++) {
+            NavigationItemSpec spec = specs.get(i);
+            NavigationItem item = mItems.get(spec.getId());
+            if (item == null) {
+                NormalItem newItem = prebuilt == null ? null : prebuilt.get(spec.getId());
+                if (newItem == null) {
+                    newItem = new NormalItem(getContext(), spec);
+                }
+                addView(newItem, Math.min(i, getChildCount()),
+                        new NavigationBar.LayoutParams(0, NavigationBar.LayoutParams.MATCH_PARENT, 1));
+                if (spec.getId() == mSelectedId) {
+                    // 选中的 Id 没有变化，添加后只恢复选中状态，不重新分发选中回调
+                    mProtectFromSelectedChange = true;
+                    setSelectedStateForView(mSelectedId, true);
+                    mProtectFromSelectedChange = false;
+                }
+                continue;
+            }
+            int index = indexOfChild(item);
+            if (index != i) {
+                // 只调整位置，不触发添加和移除的回调
+                ViewGroup.LayoutParams params = item.getLayoutParams();
+                detachViewFromParent(index);
+                attachViewToParent(item, Math.min(i, getChildCount()), params);
+                moved = true;
+            }
+            if (item instanceof NormalItem) {
+                ((NormalItem) item).bind(spec);
+            }
+        }
+        if (moved) {
+            requestLayout();
+            invalidate();
+        }
+    }
+
+    /**
+     * 根据 menu 资源添加 Item ，解析结果在进程内按资源 Id 缓存，多个页面使用同一个 menu 时只解析一次
+     *
+     * @param menuRes menu 资源，item 支持 android:id 、android:title 和 android:icon 属性
+     */
+    public void inflateMenu(@MenuRes int menuRes) {
+        setItems(MenuSpecCache.get(getContext(), menuRes));
+    }
+
+    /**
+     * 可滚动模式，只为屏幕内的 Item 创建 View ，滑出屏幕的 View 会被回收复用，适合 Item 较多的情况。
+     * 调用后会移除之前添加的所有 Item
+     *
+     * @param specs     所有 Item
+     * @param itemWidth 每个 Item 的宽度，单位 px
+     */
+    public void setScrollableItems(List<NavigationItemSpec> specs, int itemWidth) {
+        cancelAsyncItems();
+        if (mFlat) {
+            exitFlat();
+        }
+        if (mScrollView == null) {
+            removeAllViews();
+            mScrollAdapter = new ScrollItemAdapter();
+            mScrollView = new RecyclerView(getContext());
+            mScrollView.setLayoutManager(new LinearLayoutManager(getContext(), RecyclerView.HORIZONTAL, false));
+            mScrollView.setAdapter(mScrollAdapter);
+            mScrollView.addOnChildAttachStateChangeListener(new ScrollItemAttachListener());
+            mScrollView.addOnScrollListener(new IndicatorScrollListener());
+            addView(mScrollView, new NavigationBar.LayoutParams(
+                    NavigationBar.LayoutParams.MATCH_PARENT, NavigationBar.LayoutParams.MATCH_PARENT));
+        }
+        mScrollAdapter.setItems(specs, itemWidth);
+        updateIconAtlas();
+    }
+
+    /**
+     * @return 是否为可滚动模式
+     */
+    public boolean isScrollable() {
+        return mScrollView != null;
+    }
+
+    /**
+     * 平铺模式，所有 Item 的图标、标题、角标和选中状态直接绘制在导航栏上，不创建子 View ，
+     * 点击和无障碍由导航栏处理，选中状态和监听与普通模式一致。
+     * 平铺模式下只能通过 {@link #setItems(List)} 或 {@link #inflateMenu(int)} 添加 Item ，
+     * 切换模式时已通过 {@link #setItems(List)} 添加的 Item 会被保留
+     *
+     * @param flat 是否为平铺模式
+     */
+    public void setFlat(boolean flat) {
+        if (mFlat == flat) {
+            return;
+        }
+        cancelAsyncItems();
+        if (flat) {
+            List<NavigationItemSpec> specs = collectItemSpecs();
+            removeAllViews();
+            mScrollView = null;
+            mScrollAdapter = null;
+            mFlat = true;
+            mFlatTint = ResourcesCompat.getColorStateList(getResources(), R.color.ui_selector_navi_item, getContext().getTheme());
+            mFlatHelper = new FlatAccessibilityHelper();
+            ViewCompat.setAccessibilityDelegate(this, mFlatHelper);
+            updateFlatItems(specs);
+        } else {
+            List<NavigationItemSpec> specs = new ArrayList<>(mFlatSpecs);
+            exitFlat();
+            diffItems(specs, null);
+        }
+        updateIconAtlas();
+    }
+
+    /**
+     * @return 是否为平铺模式
+     */
+    public boolean isFlat() {
+        return mFlat;
+    }
+
+    private List<NavigationItemSpec> collectItemSpecs() {
+        if (mScrollAdapter != null) {
+            return new ArrayList<>(mScrollAdapter.mSpecs);
+        }
+        List<NavigationItemSpec> specs = new ArrayList<>();
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            View child = getChildAt(i);
+            if (child instanceof NormalItem && ((NormalItem) child).getSpec() != null) {
+                specs.add(((NormalItem) child).getSpec());
+            }
+        }
+        return specs;
+    }
+
+    private void exitFlat() {
+        mFlat = false;
+        mFlatSpecs.clear();
+        mFlatRenderers.clear();
+        mFlatPressedIndex = -1;
+        mFlatHelper = null;
+        ViewCompat.setAccessibilityDelegate(this, null);
+        requestLayout();
+        invalidate();
+    }
+
+    private void updateFlatItems(List<NavigationItemSpec> specs) {
+        SparseArrayCompat<ItemRenderer> renderers = new SparseArrayCompat<>(specs.size());
+        boolean layoutChanged = specs.size() != mFlatSpecs.size();
+        for (int i = 0, size = specs.size(); i < size; i++) {
+            NavigationItemSpec spec = specs.get(i);
+            if (!layoutChanged && mFlatSpecs.get(i).getId() != spec.getId()) {
+                layoutChanged = true;
+            }
+            ItemRenderer renderer = mFlatRenderers.get(spec.getId());
+            boolean created = renderer == null;
+            if (created) {
+                renderer = new ItemRenderer(getContext());
+                renderer.setColorTint(mFlatTint, false);
+                renderer.setBadgeColor(Color.RED);
+                renderer.setBadgeTextColor(Color.WHITE);
+                renderer.setSelected(spec.getId() == mSelectedId);
+                renderer.setIconAtlas(mIconAtlas);
+            }
+            layoutChanged |= renderer.bind(spec);
+            if (created) {
+                BadgeSlot slot = findBadgeSlot(mBadgeSlots, spec.getId());
+                if (slot != null && slot.applied != BadgeSlot.UNSET) {
+                    renderer.setBadge(BadgeCounts.format(slot.applied));
+                }
+            }
+            renderers.put(spec.getId(), renderer);
+        }
+        mFlatSpecs.clear();
+        mFlatSpecs.addAll(specs);
+        mFlatRenderers.clear();
+        mFlatRenderers.putAll(renderers);
+        mFlatPressedIndex = -1;
+        mFlatHelper.invalidateRoot();
+        // 只有角标或选中状态变化时不需要重新布局
+        if (layoutChanged) {
+            requestLayout();
+        }
+        invalidate();
+    }
+
+    private int indexOfFlatItem(int id) {
+        for (int i = 0, size = mFlatSpecs.size(); i < size; i++) {
+            if (mFlatSpecs.get(i).getId() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int findFlatItemAt(float x, float y) {
+        for (int i = 0, size = mFlatSpecs.size(); i < size; i++) {
+            if (mFlatRenderers.get(mFlatSpecs.get(i).getId()).getBounds().contains((int) x, (int) y)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private ItemRenderer getFlatRenderer(int index) {
+        return mFlatRenderers.get(mFlatSpecs.get(index).getId());
+    }
+
+    private void setFlatPressedIndex(int index) {
+        if (mFlatPressedIndex == index) {
+            return;
+        }
+        if (mFlatPressedIndex >= 0) {
+            getFlatRenderer(mFlatPressedIndex).setPressed(false);
+        }
+        mFlatPressedIndex = index;
+        if (index >= 0) {
+            getFlatRenderer(index).setPressed(true);
+        }
+        invalidate();
+    }
+
+    /**
+     * 与点击 {@link NavigationItem} 一致，未选中时选中该 Item 并记录点击时间
+     */
+    private void performFlatItemClick(int index) {
+        long clickTimeNanos = System.nanoTime();
+        int id = mFlatSpecs.get(index).getId();
+        playSoundEffect(SoundEffectConstants.CLICK);
+        mFlatHelper.sendEventForVirtualView(index, AccessibilityEvent.TYPE_VIEW_CLICKED);
+        if (id == mSelectedId) {
+            dispatchReselected(id);
+            return;
+        }
+        if (mSelectedId != View.NO_ID) {
+            setSelectedStateForView(mSelectedId, false);
+        }
+        setSelectedStateForView(id, true);
+        mSelectStartNanos = clickTimeNanos;
+        setSelectedId(id);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (!mFlat) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            if (mAsyncPending) {
+                // 异步创建的 Item 添加前按 Item 的高度占位，避免添加后导航栏高度跳变
+                int height = Math.max(getMeasuredHeight(), resolveSize(mPlaceholderHeight
+                        + getPaddingTop() + getPaddingBottom(), heightMeasureSpec));
+                setMeasuredDimension(getMeasuredWidth(), height);
+            }
+            return;
+        }
+        int count = mFlatSpecs.size();
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        int desiredWidth = 0;
+        for (int i = 0; i < count; i++) {
+            desiredWidth += getFlatRenderer(i).getDesiredWidth();
+        }
+        int width = resolveSize(Math.max(desiredWidth + horizontalPadding, getSuggestedMinimumWidth()), widthMeasureSpec);
+        int itemWidth = count == 0 ? 0 : (width - horizontalPadding) / count;
+        int desiredHeight = 0;
+        for (int i = 0; i < count; i++) {
+            desiredHeight = Math.max(desiredHeight, getFlatRenderer(i).getDesiredHeight(itemWidth));
+        }
+        int height = resolveSize(Math.max(desiredHeight + getPaddingTop() + getPaddingBottom(),
+                getSuggestedMinimumHeight()), heightMeasureSpec);
+        setMeasuredDimension(width, height);
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        if (!mFlat) {
+            super.onLayout(changed, l, t, r, b);
+            return;
+        }
+        // 与普通模式下 weight 为 1 的 Item 一样平分宽度
+        int count = mFlatSpecs.size();
+        int left = getPaddingLeft();
+        int available = getWidth() - left - getPaddingRight();
+        int bottom = getHeight() - getPaddingBottom();
+        for (int i = 0; i < count; i++) {
+            getFlatRenderer(i).setBounds(left + available * i / count, getPaddingTop(),
+                    left + available * (i + 1) / count, bottom);
+        }
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        drawIndicator(canvas);
+        super.dispatchDraw(canvas);
+        if (mFlat) {
+            for (int i = 0, count = mFlatSpecs.size(); i < count; i++) {
+                getFlatRenderer(i).draw(canvas);
+            }
+        }
+    }
+
+    /**
+     * 设置选中指示器，由导航栏在切换选中 Item 时绘制，Item 不需要额外的状态重绘
+     *
+     * @param style {@link #INDICATOR_NONE} 、{@link #INDICATOR_PILL} 或 {@link #INDICATOR_UNDERLINE}
+     */
+    public void setIndicatorStyle(@IndicatorStyle int style) {
+        if (mIndicatorStyle == style) {
+            return;
+        }
+        mIndicatorStyle = style;
+        if (!mIndicatorColorSet) {
+            int color = ContextCompat.getColor(getContext(), R.color.ui_selected_color);
+            if (style == INDICATOR_PILL) {
+                // 背景使用浅色，不遮挡图标和标题
+                color = (color & 0x00FFFFFF) | 0x33000000;
+            }
+            mIndicatorPaint.setColor(color);
+        }
+        if (mIndicatorAnimator != null) {
+            mIndicatorAnimator.cancel();
+        }
+        invalidate();
+    }
+
+    /**
+     * @return 选中指示器的样式
+     */
+    @IndicatorStyle
+    public int getIndicatorStyle() {
+        return mIndicatorStyle;
+    }
+
+    /**
+     * @param color 选中指示器的颜色
+     */
+    public void setIndicatorColor(@ColorInt int color) {
+        mIndicatorColorSet = true;
+        mIndicatorPaint.setColor(color);
+        invalidate();
+    }
+
+    /**
+     * 选中 Item 改变时从上一次绘制的位置移向新的 Item ，动画进行中时复用同一个动画重新开始
+     */
+    private void moveIndicator() {
+        if (mIndicatorStyle == INDICATOR_NONE) {
+            return;
+        }
+        if (!mIndicatorDrawn || mSelectedId == View.NO_ID || !ViewCompat.isLaidOut(this)) {
+            // 没有起点，直接出现在新的位置
+            if (mIndicatorAnimator != null) {
+                mIndicatorAnimator.cancel();
+            }
+            invalidate();
+            return;
+        }
+        mIndicatorFrom.set(mIndicatorRect);
+        if (mIndicatorAnimator == null) {
+            mIndicatorAnimator = ValueAnimator.ofFloat(0, 1);
+            mIndicatorAnimator.setDuration(getResources().getInteger(android.R.integer.config_shortAnimTime));
+            mIndicatorAnimator.setInterpolator(new DecelerateInterpolator());
+            IndicatorAnimatorListener listener = new IndicatorAnimatorListener();
+            mIndicatorAnimator.addUpdateListener(listener);
+            mIndicatorAnimator.addListener(listener);
+        }
+        if (mIndicatorAnimator.isRunning()) {
+            mIndicatorAnimator.setCurrentPlayTime(0);
+        } else {
+            mIndicatorAnimator.start();
+        }
+        invalidate();
+    }
+
+    private void drawIndicator(Canvas canvas) {
+        mIndicatorDrawn = false;
+        if (mIndicatorStyle == INDICATOR_NONE || mSelectedId == View.NO_ID
+                || !getIndicatorBounds(mSelectedId, mIndicatorTo)) {
+            return;
+        }
+        if (mIndicatorAnimator != null && mIndicatorAnimator.isRunning()) {
+            float fraction = (Float) mIndicatorAnimator.getAnimatedValue();
+            mIndicatorRect.set(
+                    lerp(mIndicatorFrom.left, mIndicatorTo.left, fraction),
+                    lerp(mIndicatorFrom.top, mIndicatorTo.top, fraction),
+                    lerp(mIndicatorFrom.right, mIndicatorTo.right, fraction),
+                    lerp(mIndicatorFrom.bottom, mIndicatorTo.bottom, fraction));
+        } else {
+            mIndicatorRect.set(mIndicatorTo);
+        }
+        float radius = mIndicatorRect.height() / 2;
+        canvas.drawRoundRect(mIndicatorRect, radius, radius, mIndicatorPaint);
+        mIndicatorDrawn = true;
+    }
+
+    private static float lerp(float start, float end, float fraction) {
+        return start + (end - start) * fraction;
+    }
+
+    /**
+     * @return 指示器在 Item 处的位置，Item 不存在时返回 false
+     */
+    private boolean getIndicatorBounds(int id, RectF out) {
+        Rect bounds = mIndicatorItemBounds;
+        if (mFlat) {
+            ItemRenderer renderer = mFlatRenderers.get(id);
+            if (renderer == null) {
+                return false;
+            }
+            bounds.set(renderer.getBounds());
+        } else {
+            NavigationItem item = mItems.get(id);
+            if (item == null || item.getWidth() == 0) {
+                return false;
+            }
+            // 滚动模式下 Item 在 RecyclerView 中，需要转换坐标
+            item.getDrawingRect(bounds);
+            offsetDescendantRectToMyCoords(item, bounds);
+        }
+        if (mIndicatorStyle == INDICATOR_PILL) {
+            out.set(bounds);
+            out.inset(dp2px(INDICATOR_PILL_INSET_HORIZONTAL_DP), dp2px(INDICATOR_PILL_INSET_VERTICAL_DP));
+        } else {
+            float inset = Math.min(dp2px(INDICATOR_UNDERLINE_INSET_DP), bounds.width() / 4f);
+            out.set(bounds.left + inset, bounds.bottom - dp2px(INDICATOR_UNDERLINE_HEIGHT_DP),
+                    bounds.right - inset, bounds.bottom);
+        }
+        return true;
+    }
+
+    private int dp2px(float dp) {
+        float scale = getContext().getResources().getDisplayMetrics().density;
+        return (int) (dp * scale + 0.5f);
+    }
+
+    /**
+     * 把所有 Item 的着色图标按未选中和选中两种颜色预先绘制到一张共享的 Bitmap 上，Item 从中截取绘制，
+     * 矢量图标不再按 Item 和状态分别光栅化。图集在后台线程生成，生成前 Item 使用普通的着色图标；
+     * 进程内按屏幕密度、夜间模式、着色和图标缓存，多个页面的导航栏共用同一个图集。
+     * 只对通过资源设置并且着色的图标生效
+     *
+     * @param enabled 是否使用图标图集
+     */
+    public void setIconAtlasEnabled(boolean enabled) {
+        if (mIconAtlasEnabled == enabled) {
+            return;
+        }
+        mIconAtlasEnabled = enabled;
+        if (enabled) {
+            updateIconAtlas();
+        } else {
+            mIconAtlasGeneration++;
+            applyIconAtlas(null);
+        }
+    }
+
+    /**
+     * @return 是否使用图标图集
+     */
+    public boolean isIconAtlasEnabled() {
+        return mIconAtlasEnabled;
+    }
+
+    private void updateIconAtlas() {
+        if (!mIconAtlasEnabled) {
+            return;
+        }
+        ColorStateList tint = ResourcesCompat.getColorStateList(getResources(), R.color.ui_selector_navi_item, getContext().getTheme());
+        IconAtlas.Key key = IconAtlas.createKey(getContext(), collectAtlasIconRes(), tint);
+        mIconAtlasGeneration++;
+        if (mIconAtlas != null && mIconAtlas.getKey().equals(key)) {
+            return;
+        }
+        IconAtlas cached = key == null ? null : IconAtlas.getCached(key);
+        if (key == null || cached != null) {
+            applyIconAtlas(cached);
+            return;
+        }
+        if (mMainHandler == null) {
+            mMainHandler = new Handler(Looper.getMainLooper());
+        }
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new IconAtlasTask(key, mIconAtlasGeneration));
+    }
+
+    private int[] collectAtlasIconRes() {
+        if (mFlat) {
+            int[] iconRes = new int[mFlatSpecs.size()];
+            for (int i = 0; i < iconRes.length; i++) {
+                iconRes[i] = getFlatRenderer(i).getAtlasIconRes();
+            }
+            return iconRes;
+        }
+        if (mScrollAdapter != null) {
+            // 滚动模式下的 Item 使用默认着色
+            int[] iconRes = new int[mScrollAdapter.mSpecs.size()];
+            for (int i = 0; i < iconRes.length; i++) {
+                iconRes[i] = mScrollAdapter.mSpecs.get(i).getIconRes();
+            }
+            return iconRes;
+        }
+        int[] iconRes = new int[getChildCount()];
+        for (int i = 0; i < iconRes.length; i++) {
+            View child = getChildAt(i);
+            if (child instanceof NavigationItem) {
+                iconRes[i] = ((NavigationItem) child).getAtlasIconRes();
+            }
+        }
+        return iconRes;
+    }
+
+    private void applyIconAtlas(@Nullable IconAtlas atlas) {
+        mIconAtlas = atlas;
+        if (mFlat) {
+            boolean changed = false;
+            for (int i = 0, size = mFlatRenderers.size(); i < size; i++) {
+                changed |= mFlatRenderers.valueAt(i).setIconAtlas(atlas);
+            }
+            if (changed) {
+                invalidate();
+            }
+            return;
+        }
+        // 滚动模式下不在屏幕内的 Item 进入屏幕时再设置
+        for (int i = 0, size = mItems.size(); i < size; i++) {
+            mItems.valueAt(i).applyIconAtlas(atlas);
+        }
+    }
+
+    private void onIconAtlasReady(IconAtlasTask task) {
+        if (task.mGeneration != mIconAtlasGeneration || !mIconAtlasEnabled) {
+            return;
+        }
+        applyIconAtlas(task.mAtlas);
+    }
+
+    /**
+     * 在后台线程绘制图标图集
+     */
+    private class IconAtlasTask implements Runnable {
+
+        private final Context mContext;
+        private final IconAtlas.Key mKey;
+        private final int mGeneration;
+        private IconAtlas mAtlas;
+
+        IconAtlasTask(IconAtlas.Key key, int generation) {
+            mContext = getContext();
+            mKey = key;
+            mGeneration = generation;
+        }
+
+        @Override
+        public void run() {
+            mAtlas = IconAtlas.obtain(mContext, mKey);
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onIconAtlasReady(IconAtlasTask.this);
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        // 重新添加到窗口时屏幕密度或主题可能已经变化
+        updateIconAtlas();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        if (mIndicatorAnimator != null) {
+            mIndicatorAnimator.cancel();
+        }
+        // 丢弃还没有完成的图集
+        mIconAtlasGeneration++;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!mFlat) {
+            return super.onTouchEvent(event);
+        }
+        if (!isEnabled()) {
+            // 与 View 一样，禁用时不响应点击，可点击时仍然消费事件
+            setFlatPressedIndex(-1);
+            return isClickable() || isLongClickable();
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                setFlatPressedIndex(findFlatItemAt(event.getX(), event.getY()));
+                return mFlatPressedIndex >= 0;
+            case MotionEvent.ACTION_MOVE:
+                if (mFlatPressedIndex >= 0 && findFlatItemAt(event.getX(), event.getY()) != mFlatPressedIndex) {
+                    setFlatPressedIndex(-1);
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                int index = mFlatPressedIndex;
+                setFlatPressedIndex(-1);
+                if (index >= 0) {
+                    performFlatItemClick(index);
+                }
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                setFlatPressedIndex(-1);
+                break;
+            default:
+                break;
+        }
+        return true;
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        if (mFlatHelper != null && mFlatHelper.dispatchHoverEvent(event)) {
+            return true;
+        }
+        return super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        if (mFlatHelper != null && mFlatHelper.dispatchKeyEvent(event)) {
+            return true;
+        }
+        return super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, @Nullable Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        if (mFlatHelper != null) {
+            mFlatHelper.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        }
+    }
+
+    /**
+     * 设置数字角标，可以在任意线程调用。只保留每个 Item 最新的数字，所有变化在下一帧统一应用，
+     * 超过 {@value BadgeCounts#MAX_COUNT} 时展示 "99+"
+     *
+     * @param id    Item 的 Id
+     * @param count 数字，小于等于 0 时清除角标
+     */
+    public void setBadgeCount(@IdRes int id, int count) {
+        BadgeSlot slot = findBadgeSlot(mBadgeSlots, id);
+        if (slot == null) {
+            slot = obtainBadgeSlot(id);
+        }
+        slot.count.set(count);
+        if (mBadgeFlushScheduled.compareAndSet(false, true)) {
+            mChoreographer.postFrameCallback(mBadgeFlusher);
+        }
+    }
+
+    private static BadgeSlot findBadgeSlot(BadgeSlot[] slots, int id) {
+        for (BadgeSlot slot : slots) {
+            if (slot.id == id) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    private BadgeSlot obtainBadgeSlot(int id) {
+        synchronized (mBadgeSlotsLock) {
+            BadgeSlot[] slots = mBadgeSlots;
+            BadgeSlot slot = findBadgeSlot(slots, id);
+            if (slot == null) {
+                slot = new BadgeSlot(id);
+                BadgeSlot[] newSlots = new BadgeSlot[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, slots.length);
+                newSlots[slots.length] = slot;
+                mBadgeSlots = newSlots;
+            }
+            return slot;
+        }
+    }
+
+    private void flushBadgeCounts() {
+        boolean traced = NavigationMetrics.beginSection(NavigationMetrics.SECTION_BADGE);
+        mBadgeFlushScheduled.set(false);
+        for (BadgeSlot slot : mBadgeSlots) {
+            int count = slot.count.get();
+            if (count != slot.applied) {
+                slot.applied = count;
+                applyBadgeCount(slot.id, BadgeCounts.format(count));
+            }
+        }
+        NavigationMetrics.endSection(traced);
+    }
+
+    private void applyBadgeCount(int id, @Nullable String badge) {
+        if (mFlat) {
+            ItemRenderer renderer = mFlatRenderers.get(id);
+            if (renderer != null) {
+                renderer.setBadge(badge);
+                invalidate();
+                NavigationMetrics.countBadgeUpdate();
+            }
+            return;
+        }
+        // 滚动模式下不在屏幕内的 Item 没有 View ，进入屏幕时再设置
+        NavigationItem item = mItems.get(id);
+        if (item != null) {
+            item.applyBadge(badge);
+        }
+    }
+
+    /**
+     * 新创建或重新绑定的 Item 展示已经应用过的数字角标
+     */
+    private void restoreBadgeCount(NavigationItem item) {
+        BadgeSlot slot = findBadgeSlot(mBadgeSlots, item.getId());
+        if (slot != null && slot.applied != BadgeSlot.UNSET) {
+            item.applyBadge(BadgeCounts.format(slot.applied));
         }
     }
 
@@ -158,6 +1188,12 @@ public class NavigationBar extends LinearLayout {
 
     }
 
+    public interface OnReselectedListener {
+
+        void onReselected(NavigationBar bar, @IdRes int id);
+
+    }
+
     /**
      * @param listener 选中 Item 改变的监听
      */
@@ -165,10 +1201,55 @@ public class NavigationBar extends LinearLayout {
         mOnSelectedChangeListener = listener;
     }
 
+    /**
+     * 添加选中 Item 改变的监听，可以添加多个，与 {@link #setOnSelectedChangeListener(OnSelectedChangeListener)} 互不影响
+     *
+     * @param listener 选中 Item 改变的监听
+     */
+    public void addOnSelectedChangeListener(@NonNull OnSelectedChangeListener listener) {
+        mOnSelectedChangeListeners = ListenerArrays.add(mOnSelectedChangeListeners, listener);
+    }
+
+    /**
+     * @param listener 通过 {@link #addOnSelectedChangeListener(OnSelectedChangeListener)} 添加的监听
+     */
+    public void removeOnSelectedChangeListener(@NonNull OnSelectedChangeListener listener) {
+        mOnSelectedChangeListeners = ListenerArrays.remove(mOnSelectedChangeListeners, listener);
+    }
+
+    /**
+     * @param listener 点击已经选中的 Item 时的监听
+     */
+    public void addOnReselectedListener(@NonNull OnReselectedListener listener) {
+        mOnReselectedListeners = ListenerArrays.add(mOnReselectedListeners, listener);
+    }
+
+    /**
+     * @param listener 通过 {@link #addOnReselectedListener(OnReselectedListener)} 添加的监听
+     */
+    public void removeOnReselectedListener(@NonNull OnReselectedListener listener) {
+        mOnReselectedListeners = ListenerArrays.remove(mOnReselectedListeners, listener);
+    }
+
+    private void dispatchReselected(@IdRes int id) {
+        for (OnReselectedListener listener : mOnReselectedListeners) {
+            listener.onReselected(this, id);
+        }
+    }
+
     void setOnSelectedChangeManagerListener(OnSelectedChangeListener listener) {
         mOnSelectedChangeManagerListener = listener;
     }
 
+    /**
+     * @return 点击 Item 的时间，不是由点击引起的选中时为 0 ，读取后重置
+     */
+    long consumeSelectStartNanos() {
+        long start = mSelectStartNanos;
+        mSelectStartNanos = 0;
+        return start;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -309,6 +1390,244 @@ public class NavigationBar extends LinearLayout {
         }
     }
 
+    private class ScrollItemAdapter extends RecyclerView.Adapter<ScrollItemHolder> {
+
+        private final ArrayList<NavigationItemSpec> mSpecs = new ArrayList<>();
+        private int mItemWidth;
+
+        void setItems(List<NavigationItemSpec> specs, int itemWidth) {
+            if (itemWidth != mItemWidth || mSpecs.isEmpty()) {
+                mSpecs.clear();
+                mSpecs.addAll(specs);
+                mItemWidth = itemWidth;
+                notifyDataSetChanged();
+                return;
+            }
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new SpecDiffCallback(mSpecs, specs));
+            mSpecs.clear();
+            mSpecs.addAll(specs);
+            result.dispatchUpdatesTo(this);
+        }
+
+        @NonNull
+        @Override
+        public ScrollItemHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            NormalItem item = new NormalItem(parent.getContext());
+            item.setLayoutParams(new RecyclerView.LayoutParams(mItemWidth, RecyclerView.LayoutParams.MATCH_PARENT));
+            return new ScrollItemHolder(item);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ScrollItemHolder holder, int position) {
+            NormalItem item = (NormalItem) holder.itemView;
+            NavigationItemSpec spec = mSpecs.get(position);
+            boolean attached = ViewCompat.isAttachedToWindow(item);
+            if (attached) {
+                detachScrollItem(item);
+            }
+            item.getLayoutParams().width = mItemWidth;
+            item.setId(spec.getId());
+            item.bind(spec);
+            if (attached) {
+                attachScrollItem(item);
+            }
+        }
+
+        @Override
+        public int getItemCount() {
+            return mSpecs.size();
+        }
+    }
+
+    private static class SpecDiffCallback extends DiffUtil.Callback {
+
+        private final List<NavigationItemSpec> mOld;
+        private final List<NavigationItemSpec> mNew;
+
+        SpecDiffCallback(List<NavigationItemSpec> oldSpecs, List<NavigationItemSpec> newSpecs) {
+            mOld = new ArrayList<>(oldSpecs);
+            mNew = newSpecs;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOld.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNew.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOld.get(oldItemPosition).getId() == mNew.get(newItemPosition).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOld.get(oldItemPosition).hasSameContent(mNew.get(newItemPosition));
+        }
+
+        @Nullable
+        @Override
+        public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+            // 返回非空的 payload ，更新时复用原来的 View ，只更新变化的部分
+            return mNew.get(newItemPosition);
+        }
+    }
+
+    private static class ScrollItemHolder extends RecyclerView.ViewHolder {
+        ScrollItemHolder(@NonNull View itemView) {
+            super(itemView);
+        }
+    }
+
+    /**
+     * 滚动模式下的 Item 在进入屏幕时加入索引并同步选中状态，离开屏幕时移出索引
+     */
+    private class ScrollItemAttachListener implements RecyclerView.OnChildAttachStateChangeListener {
+        @Override
+        public void onChildViewAttachedToWindow(@NonNull View view) {
+            if (view instanceof NavigationItem) {
+                attachScrollItem((NavigationItem) view);
+            }
+        }
+
+        @Override
+        public void onChildViewDetachedFromWindow(@NonNull View view) {
+            if (view instanceof NavigationItem) {
+                detachScrollItem((NavigationItem) view);
+            }
+        }
+    }
+
+    private void attachScrollItem(NavigationItem item) {
+        mItems.put(item.getId(), item);
+        restoreBadgeCount(item);
+        item.applyIconAtlas(mIconAtlas);
+        mProtectFromSelectedChange = true;
+        item.setSelected(item.getId() == mSelectedId);
+        mProtectFromSelectedChange = false;
+        item.setOnSelectedChangeWidgetListener(mChildOnSelectedChangeListener);
+        item.setOnReselectedWidgetListener(mChildOnReselectedListener);
+    }
+
+    private void detachScrollItem(NavigationItem item) {
+        if (mItems.get(item.getId()) == item) {
+            mItems.remove(item.getId());
+        }
+        item.setOnSelectedChangeWidgetListener(null);
+        item.setOnReselectedWidgetListener(null);
+    }
+
+    /**
+     * 平铺模式下为每个 Item 提供虚拟的无障碍节点，Id 为 Item 的位置
+     */
+    private class FlatAccessibilityHelper extends ExploreByTouchHelper {
+
+        FlatAccessibilityHelper() {
+            super(NavigationBar.this);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int index = findFlatItemAt(x, y);
+            return index >= 0 ? index : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int i = 0, size = mFlatSpecs.size(); i < size; i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, @NonNull AccessibilityNodeInfoCompat node) {
+            if (virtualViewId >= mFlatSpecs.size()) {
+                // Item 已被移除，节点需要有描述和位置
+                node.setContentDescription("");
+                node.setBoundsInParent(new Rect());
+                return;
+            }
+            ItemRenderer renderer = getFlatRenderer(virtualViewId);
+            String title = renderer.getTitle();
+            node.setContentDescription(title == null ? "" : title);
+            node.setClassName(NavigationItem.class.getName());
+            node.setEnabled(isEnabled());
+            node.setClickable(true);
+            if (isEnabled()) {
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            }
+            node.setSelected(renderer.isSelected());
+            node.setBoundsInParent(renderer.getBounds());
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, @Nullable Bundle arguments) {
+            if (action == AccessibilityNodeInfoCompat.ACTION_CLICK && isEnabled()
+                    && virtualViewId < mFlatSpecs.size()) {
+                performFlatItemClick(virtualViewId);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class BadgeSlot {
+
+        static final int UNSET = Integer.MIN_VALUE;
+
+        final int id;
+        /**
+         * 最新的数字，任意线程写入
+         */
+        final AtomicInteger count = new AtomicInteger(UNSET);
+        /**
+         * 已经应用到 Item 上的数字，只在主线程读写
+         */
+        int applied = UNSET;
+
+        BadgeSlot(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * 指示器和 Item 画在同一个显示列表中，每帧都要重绘导航栏，不使用硬件层，否则每帧还要重新渲染整个层
+     */
+    private class IndicatorAnimatorListener extends AnimatorListenerAdapter implements ValueAnimator.AnimatorUpdateListener {
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            invalidate();
+        }
+
+        @Override
+        public void onAnimationUpdate(ValueAnimator animation) {
+            invalidate();
+        }
+    }
+
+    /**
+     * 滚动模式下 Item 位置变化时重绘指示器
+     */
+    private class IndicatorScrollListener extends RecyclerView.OnScrollListener {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (mIndicatorStyle != INDICATOR_NONE) {
+                invalidate();
+            }
+        }
+    }
+
+    private class BadgeFlusher implements Choreographer.FrameCallback {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            flushBadgeCounts();
+        }
+    }
+
     private class SelectedStateTracker implements SelectedChangeListener {
         @Override
         public void onSelectedChanged(NavigationItem item, boolean isSelected) {
@@ -323,11 +1642,19 @@ public class NavigationBar extends LinearLayout {
             }
             mProtectFromSelectedChange = false;
 
+            mSelectStartNanos = item.mClickTimeNanos;
             int id = item.getId();
             setSelectedId(id);
         }
     }
 
+    private class ReselectedTracker implements ReselectedListener {
+        @Override
+        public void onReselected(NavigationItem item) {
+            dispatchReselected(item.getId());
+        }
+    }
+
     private class PassThroughHierarchyChangeListener implements
             OnHierarchyChangeListener {
         private OnHierarchyChangeListener mOnHierarchyChangeListener;
@@ -346,6 +1673,10 @@ public class NavigationBar extends LinearLayout {
                 }
                 ((NavigationItem) child).setOnSelectedChangeWidgetListener(
                         mChildOnSelectedChangeListener);
+                ((NavigationItem) child).setOnReselectedWidgetListener(mChildOnReselectedListener);
+                mItems.put(id, (NavigationItem) child);
+                restoreBadgeCount((NavigationItem) child);
+                ((NavigationItem) child).applyIconAtlas(mIconAtlas);
             }
 
             if (mOnHierarchyChangeListener != null) {
@@ -360,6 +1691,10 @@ public class NavigationBar extends LinearLayout {
         public void onChildViewRemoved(View parent, View child) {
             if (parent == NavigationBar.this && child instanceof NavigationItem) {
                 ((NavigationItem) child).setOnSelectedChangeWidgetListener(null);
+                ((NavigationItem) child).setOnReselectedWidgetListener(null);
+                if (mItems.get(child.getId()) == child) {
+                    mItems.remove(child.getId());
+                }
             }
 
             if (mOnHierarchyChangeListener != null) {
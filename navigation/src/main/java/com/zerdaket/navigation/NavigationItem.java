@@ -1,12 +1,14 @@
 package com.zerdaket.navigation;
 
 import android.content.Context;
+import android.graphics.Canvas;
 import android.util.AttributeSet;
 import android.view.SoundEffectConstants;
 import android.widget.FrameLayout;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 /**
  * Created by zerdaket on 2019-11-14.
@@ -14,9 +16,22 @@ import androidx.annotation.Nullable;
 public class NavigationItem extends FrameLayout {
 
     private boolean mBroadcasting;
+    /**
+     * 点击开始的时间，用于统计切换耗时，点击结束后重置为 0
+     */
+    long mClickTimeNanos;
+    /**
+     * 请求布局和布局的次数，用于测试选中和角标更新是否只触发重绘
+     */
+    private int mLayoutRequestCount;
+    private int mLayoutPassCount;
+    private boolean mInDraw;
 
     private SelectedChangeListener mOnSelectedChangeListener;
     private SelectedChangeListener mOnSelectedChangeWidgetListener;
+    private SelectedChangeListener[] mOnSelectedChangeListeners = new SelectedChangeListener[0];
+    private ReselectedListener[] mOnReselectedListeners = new ReselectedListener[0];
+    private ReselectedListener mOnReselectedWidgetListener;
 
     public NavigationItem(@NonNull Context context) {
         this(context, null);
@@ -48,6 +63,9 @@ public class NavigationItem extends FrameLayout {
             if (mOnSelectedChangeListener != null) {
                 mOnSelectedChangeListener.onSelectedChanged(this, selected);
             }
+            for (SelectedChangeListener listener : mOnSelectedChangeListeners) {
+                listener.onSelectedChanged(this, selected);
+            }
             if (mOnSelectedChangeWidgetListener != null) {
                 mOnSelectedChangeWidgetListener.onSelectedChanged(this, selected);
             }
@@ -58,12 +76,25 @@ public class NavigationItem extends FrameLayout {
     private void toggle() {
         if (!isSelected()) {
             setSelected(!isSelected());
+        } else {
+            dispatchReselected();
+        }
+    }
+
+    private void dispatchReselected() {
+        for (ReselectedListener listener : mOnReselectedListeners) {
+            listener.onReselected(this);
+        }
+        if (mOnReselectedWidgetListener != null) {
+            mOnReselectedWidgetListener.onReselected(this);
         }
     }
 
     @Override
     public boolean performClick() {
+        mClickTimeNanos = System.nanoTime();
         toggle();
+        mClickTimeNanos = 0;
 
         final boolean handled = super.performClick();
         if (!handled) {
@@ -73,6 +104,77 @@ public class NavigationItem extends FrameLayout {
         return handled;
     }
 
+    @Override
+    public void requestLayout() {
+        mLayoutRequestCount++;
+        super.requestLayout();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        boolean traced = NavigationMetrics.beginSection(NavigationMetrics.SECTION_ITEM_MEASURE);
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        NavigationMetrics.endSection(traced);
+        NavigationMetrics.countMeasure(getId());
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        mLayoutPassCount++;
+        boolean traced = NavigationMetrics.beginSection(NavigationMetrics.SECTION_ITEM_LAYOUT);
+        super.onLayout(changed, left, top, right, bottom);
+        NavigationMetrics.endSection(traced);
+        NavigationMetrics.countLayout(getId());
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        mInDraw = true;
+        boolean traced = NavigationMetrics.beginSection(NavigationMetrics.SECTION_ITEM_DRAW);
+        super.draw(canvas);
+        NavigationMetrics.endSection(traced);
+        mInDraw = false;
+        NavigationMetrics.countDraw(getId());
+    }
+
+    /**
+     * 没有背景时 willNotDraw 为 true ，系统跳过 {@link #draw(Canvas)} 直接调用这里，
+     * 从 {@link #draw(Canvas)} 调用时已经统计过
+     */
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mInDraw) {
+            super.dispatchDraw(canvas);
+            return;
+        }
+        boolean traced = NavigationMetrics.beginSection(NavigationMetrics.SECTION_ITEM_DRAW);
+        super.dispatchDraw(canvas);
+        NavigationMetrics.endSection(traced);
+        NavigationMetrics.countDraw(getId());
+    }
+
+    /**
+     * @return 请求布局的次数，包括子 View 传递上来的请求
+     */
+    @VisibleForTesting
+    int getLayoutRequestCount() {
+        return mLayoutRequestCount;
+    }
+
+    /**
+     * @return 布局的次数
+     */
+    @VisibleForTesting
+    int getLayoutPassCount() {
+        return mLayoutPassCount;
+    }
+
+    @VisibleForTesting
+    void resetLayoutCounts() {
+        mLayoutRequestCount = 0;
+        mLayoutPassCount = 0;
+    }
+
     protected int dp2px(float dp) {
         float scale = getContext().getResources().getDisplayMetrics().density;
         return (int) (dp * scale + 0.5f);
@@ -85,10 +187,69 @@ public class NavigationItem extends FrameLayout {
         mOnSelectedChangeListener = listener;
     }
 
+    /**
+     * 添加选中状态改变的监听，可以添加多个，与 {@link #setOnSelectedChangeListener(SelectedChangeListener)} 互不影响
+     *
+     * @param listener 选中状态改变的监听
+     */
+    public void addOnSelectedChangeListener(@NonNull SelectedChangeListener listener) {
+        mOnSelectedChangeListeners = ListenerArrays.add(mOnSelectedChangeListeners, listener);
+    }
+
+    /**
+     * @param listener 通过 {@link #addOnSelectedChangeListener(SelectedChangeListener)} 添加的监听
+     */
+    public void removeOnSelectedChangeListener(@NonNull SelectedChangeListener listener) {
+        mOnSelectedChangeListeners = ListenerArrays.remove(mOnSelectedChangeListeners, listener);
+    }
+
+    /**
+     * @param listener 点击已经选中的 Item 时的监听
+     */
+    public void addOnReselectedListener(@NonNull ReselectedListener listener) {
+        mOnReselectedListeners = ListenerArrays.add(mOnReselectedListeners, listener);
+    }
+
+    /**
+     * @param listener 通过 {@link #addOnReselectedListener(ReselectedListener)} 添加的监听
+     */
+    public void removeOnReselectedListener(@NonNull ReselectedListener listener) {
+        mOnReselectedListeners = ListenerArrays.remove(mOnReselectedListeners, listener);
+    }
+
     void setOnSelectedChangeWidgetListener(SelectedChangeListener listener) {
         mOnSelectedChangeWidgetListener = listener;
     }
 
+    void setOnReselectedWidgetListener(ReselectedListener listener) {
+        mOnReselectedWidgetListener = listener;
+    }
+
+    /**
+     * 在主线程展示 {@link NavigationBar#setBadgeCount(int, int)} 设置的数字，支持角标的 Item 需要重写
+     *
+     * @param badge 角标内容，null 时清除角标
+     */
+    void applyBadge(@Nullable String badge) {
+
+    }
+
+    /**
+     * @return 可以从 {@link IconAtlas} 绘制的图标资源，没有时为 0
+     */
+    int getAtlasIconRes() {
+        return 0;
+    }
+
+    /**
+     * 使用 {@link NavigationBar#setIconAtlasEnabled(boolean)} 生成的图集绘制图标，支持图集的 Item 需要重写
+     *
+     * @param atlas 图标图集，null 时恢复为普通的着色图标
+     */
+    void applyIconAtlas(@Nullable IconAtlas atlas) {
+
+    }
+
     public void onSelectedChange(boolean selected) {
 
     }
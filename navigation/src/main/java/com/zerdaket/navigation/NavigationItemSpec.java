@@ -0,0 +1,71 @@
+package com.zerdaket.navigation;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.IdRes;
+import androidx.annotation.Nullable;
+
+/**
+ * 描述一个 Item 的内容，不持有 View ，可以在没有 View 的情况下保存 Item
+ */
+public class NavigationItemSpec {
+
+    private final int mId;
+    private final String mTitle;
+    private final int mIconRes;
+    private final String mBadge;
+
+    /**
+     * @param id      Item 的 Id
+     * @param title   Item 的标题
+     * @param iconRes Item 的图标，为 0 时不展示图标
+     */
+    public NavigationItemSpec(@IdRes int id, @Nullable String title, @DrawableRes int iconRes) {
+        this(id, title, iconRes, null);
+    }
+
+    /**
+     * @param id      Item 的 Id
+     * @param title   Item 的标题
+     * @param iconRes Item 的图标，为 0 时不展示图标
+     * @param badge   角标内容，null 时不展示角标，空字符串时展示小圆点
+     */
+    public NavigationItemSpec(@IdRes int id, @Nullable String title, @DrawableRes int iconRes, @Nullable String badge) {
+        mId = id;
+        mTitle = title;
+        mIconRes = iconRes;
+        mBadge = badge;
+    }
+
+    @IdRes
+    public int getId() {
+        return mId;
+    }
+
+    @Nullable
+    public String getTitle() {
+        return mTitle;
+    }
+
+    @DrawableRes
+    public int getIconRes() {
+        return mIconRes;
+    }
+
+    @Nullable
+    public String getBadge() {
+        return mBadge;
+    }
+
+    /**
+     * @return Id 以外的内容是否相同
+     */
+    boolean hasSameContent(NavigationItemSpec other) {
+        return mIconRes == other.mIconRes
+                && areEqual(mTitle, other.mTitle)
+                && areEqual(mBadge, other.mBadge);
+    }
+
+    static boolean areEqual(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -1,18 +1,78 @@
 package com.zerdaket.navigation;
 
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.view.Choreographer;
 import android.view.View;
 
+import androidx.activity.OnBackPressedCallback;
+import androidx.activity.OnBackPressedDispatcherOwner;
 import androidx.annotation.IdRes;
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.collection.SparseArrayCompat;
+import androidx.core.view.ViewCompat;
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.Lifecycle;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.savedstate.SavedStateRegistry;
+import androidx.savedstate.SavedStateRegistryOwner;
+import androidx.viewpager2.adapter.FragmentStateAdapter;
+import androidx.viewpager2.widget.ViewPager2;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
 
 /**
  * Created by zerdaket on 2019-11-14.
  */
 public class NavigationManager {
 
+    /**
+     * 使用 {@link FragmentTransaction#commit()} 提交
+     */
+    public static final int COMMIT = 0;
+    /**
+     * 使用 {@link FragmentTransaction#commitNow()} 提交
+     */
+    public static final int COMMIT_NOW = 1;
+    /**
+     * 使用 {@link FragmentTransaction#commitAllowingStateLoss()} 提交
+     */
+    public static final int COMMIT_ALLOWING_STATE_LOSS = 2;
+
+    private static final long PRESSURE_RECOVERY_MILLIS = 30 * 1000;
+
+    private static final String SAVED_STATE_KEY = NavigationManager.class.getName();
+    private static final String KEY_ITEM_IDS = "item_ids";
+    private static final String KEY_TAGS = "tags";
+    private static final String KEY_SAVED_STATES = "saved_states";
+    private static final String KEY_SELECTED_ID = "selected_id";
+    private static final String KEY_STACKS = "stacks";
+    private static final String KEY_CLASS_NAMES = "class_names";
+    private static final String KEY_ARGS = "args";
+
+    private static final int DEFAULT_MAX_BACK_STACK_DEPTH = 3;
+
+    @IntDef({COMMIT, COMMIT_NOW, COMMIT_ALLOWING_STATE_LOSS})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface CommitMode {
+    }
+
     private NavigationBar mNavigationBar;
     private FragmentManager mFragmentManager;
     private int mContainerViewId;
@@ -20,64 +80,765 @@ public class NavigationManager {
 
     private SparseArrayCompat<FragmentInfo> mInfoSparseArray;
 
+    @CommitMode
+    private int mCommitMode = COMMIT;
+    private OnFragmentSwitchListener mOnFragmentSwitchListener;
+    private boolean mLazyBinding;
+
+    private TabUsageStats mUsageStats;
+    private Prewarmer mPrewarmer;
+    private int mPrewarmMaxTabs;
+    private long mPrewarmBudgetMillis;
+
+    private int mMaxLiveFragments = Integer.MAX_VALUE;
+    private int mPressureLimit = Integer.MAX_VALUE;
+    private long mLastPressureTime;
+    private long mUseClock;
+    private MemoryCallbacks mMemoryCallbacks;
+    private LatencyTracker mLatencyTracker;
+
+    private int mMaxBackStackDepth = DEFAULT_MAX_BACK_STACK_DEPTH;
+    private BackCallback mBackCallback;
+
+    private ViewPager2 mViewPager;
+    private ArrayList<FragmentInfo> mPages;
+
+    private Lifecycle.State mHiddenMaxLifecycle = Lifecycle.State.RESUMED;
+    private final SparseArrayCompat<Lifecycle.State> mHiddenMaxLifecycleOverrides = new SparseArrayCompat<>();
+
+    private boolean mRestoring;
+    private boolean mRecapHiddenLifecycle;
+    private int mPendingSelectedId = View.NO_ID;
+    private SparseArrayCompat<String> mRestoredTags;
+    private SparseArrayCompat<Fragment.SavedState> mRestoredSavedStates;
+    private SparseArrayCompat<Bundle> mRestoredStacks;
+
     /**
      * @param bar             底部导航栏
      * @param manager         FragmentManager
      * @param containerViewId 展示 Fragment 的 View Id
      */
     public NavigationManager(NavigationBar bar, FragmentManager manager, @IdRes int containerViewId) {
+        this(bar, manager, containerViewId, findSavedStateRegistryOwner(bar.getContext()));
+    }
+
+    /**
+     * @param bar             底部导航栏
+     * @param manager         FragmentManager
+     * @param containerViewId 展示 Fragment 的 View Id
+     * @param owner           用于保存和恢复绑定状态，在 Fragment 中使用 childFragmentManager 时传入该 Fragment
+     */
+    public NavigationManager(NavigationBar bar, FragmentManager manager, @IdRes int containerViewId,
+                             @Nullable SavedStateRegistryOwner owner) {
         mNavigationBar = bar;
         mFragmentManager = manager;
         mContainerViewId = containerViewId;
         mInfoSparseArray = new SparseArrayCompat<>();
         mNavigationBar.setOnSelectedChangeManagerListener(new SelectedIdChangeListener());
+        if (owner != null) {
+            attachSavedStateRegistry(owner.getSavedStateRegistry());
+        }
     }
 
-    private void showFragment(FragmentInfo info) {
-        if (mContainerViewId == View.NO_ID || mFragmentManager == null || info == null) {
-            return;
+    /**
+     * 使用 ViewPager2 展示 Fragment ，支持左右滑动切换，滑动和选中 Item 保持同步。
+     * 离屏页面之外的 Fragment 会保存状态后销毁，同时存在的 Fragment 最多为 1 + 2 * offscreenPageLimit 个
+     *
+     * @param bar                底部导航栏
+     * @param activity           承载 ViewPager2 的 Activity
+     * @param pager              展示 Fragment 的 ViewPager2
+     * @param offscreenPageLimit 当前页面两侧保留的页面数量
+     */
+    public NavigationManager(NavigationBar bar, FragmentActivity activity, ViewPager2 pager, int offscreenPageLimit) {
+        this(bar, activity.getSupportFragmentManager(), activity.getLifecycle(), pager, offscreenPageLimit);
+    }
+
+    /**
+     * @param bar                底部导航栏
+     * @param manager            FragmentManager
+     * @param lifecycle          FragmentManager 所属的 Lifecycle
+     * @param pager              展示 Fragment 的 ViewPager2
+     * @param offscreenPageLimit 当前页面两侧保留的页面数量
+     */
+    public NavigationManager(NavigationBar bar, FragmentManager manager, Lifecycle lifecycle,
+                             ViewPager2 pager, int offscreenPageLimit) {
+        this(bar, manager, View.NO_ID);
+        mPages = new ArrayList<>();
+        mViewPager = pager;
+        mViewPager.setOffscreenPageLimit(offscreenPageLimit);
+        // 关闭 RecyclerView 的缓存，离屏页面之外的 Fragment 立即回收
+        View child = mViewPager.getChildAt(0);
+        if (child instanceof RecyclerView) {
+            ((RecyclerView) child).setItemViewCacheSize(0);
         }
-        if (info.fragment == null) {
-            info.fragment = mFragmentManager.findFragmentByTag(info.tag);
+        mViewPager.setAdapter(new TabPagerAdapter(manager, lifecycle));
+        mViewPager.registerOnPageChangeCallback(new PageChangeCallback());
+    }
+
+    @Nullable
+    private static SavedStateRegistryOwner findSavedStateRegistryOwner(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof SavedStateRegistryOwner) {
+                return (SavedStateRegistryOwner) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
         }
-        if (info.fragment == null) {
-            try {
-                info.fragment = (Fragment) info.clazz.newInstance();
-                if (info.args != null) {
-                    info.fragment.setArguments(info.args);
-                }
-            } catch (InstantiationException e) {
-                e.printStackTrace();
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
+        return null;
+    }
+
+    private void attachSavedStateRegistry(SavedStateRegistry registry) {
+        String key = SAVED_STATE_KEY + ":" + mNavigationBar.getId() + ":" + mContainerViewId;
+        // 同一个页面重新创建 NavigationManager 时替换之前注册的
+        registry.unregisterSavedStateProvider(key);
+        registry.registerSavedStateProvider(key, new StateProvider());
+        if (registry.isRestored()) {
+            Bundle state = registry.consumeRestoredStateForKey(key);
+            if (state != null) {
+                restoreState(state);
             }
         }
-        if (info.fragment == null) {
+    }
+
+    /**
+     * 进程被回收后恢复时，FragmentManager 已经重新添加了之前的 Fragment 。
+     * 这里记录每个 Item 对应的 Tag 和当前选中的 Item ，绑定时直接关联已恢复的 Fragment ，不再创建新的实例。
+     * 第一次布局之前的切换只记录最后一次，之后合并成一次切换
+     */
+    private void restoreState(Bundle state) {
+        int[] ids = state.getIntArray(KEY_ITEM_IDS);
+        String[] tags = state.getStringArray(KEY_TAGS);
+        if (ids != null && tags != null) {
+            mRestoredTags = new SparseArrayCompat<>(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                mRestoredTags.put(ids[i], tags[i]);
+            }
+        }
+        SparseArray<Fragment.SavedState> savedStates = state.getSparseParcelableArray(KEY_SAVED_STATES);
+        if (savedStates != null) {
+            mRestoredSavedStates = new SparseArrayCompat<>(savedStates.size());
+            for (int i = 0; i < savedStates.size(); i++) {
+                mRestoredSavedStates.put(savedStates.keyAt(i), savedStates.valueAt(i));
+            }
+        }
+        SparseArray<Bundle> stacks = state.getSparseParcelableArray(KEY_STACKS);
+        if (stacks != null) {
+            mRestoredStacks = new SparseArrayCompat<>(stacks.size());
+            for (int i = 0; i < stacks.size(); i++) {
+                mRestoredStacks.put(stacks.keyAt(i), stacks.valueAt(i));
+            }
+        }
+        mCurrentSelectedId = state.getInt(KEY_SELECTED_ID, View.NO_ID);
+
+        mRestoring = true;
+        mPendingSelectedId = mCurrentSelectedId;
+        mNavigationBar.post(new Runnable() {
+            @Override
+            public void run() {
+                mRestoring = false;
+                mRestoredTags = null;
+                mRestoredSavedStates = null;
+                mRestoredStacks = null;
+                switchToFragment(mPendingSelectedId);
+            }
+        });
+        // 恢复后隐藏的 Fragment 不一定保留了生命周期的限制，在合并后的切换中重新设置
+        mRecapHiddenLifecycle = true;
+        if (mCurrentSelectedId != View.NO_ID) {
+            // NavigationBar 在 XML 中设置的默认选中项可能不是恢复前选中的
+            mNavigationBar.select(mCurrentSelectedId);
+        }
+    }
+
+    private Bundle saveState() {
+        Bundle state = new Bundle();
+        int size = mInfoSparseArray.size();
+        int[] ids = new int[size];
+        String[] tags = new String[size];
+        SparseArray<Fragment.SavedState> savedStates = new SparseArray<>();
+        SparseArray<Bundle> stacks = new SparseArray<>();
+        for (int i = 0; i < size; i++) {
+            FragmentInfo info = mInfoSparseArray.valueAt(i);
+            ids[i] = mInfoSparseArray.keyAt(i);
+            tags[i] = info.tag;
+            if (info.savedState != null) {
+                savedStates.put(ids[i], info.savedState);
+            }
+            if (hasBackStack(info)) {
+                stacks.put(ids[i], saveStack(info.stack));
+            }
+        }
+        state.putIntArray(KEY_ITEM_IDS, ids);
+        state.putStringArray(KEY_TAGS, tags);
+        state.putSparseParcelableArray(KEY_SAVED_STATES, savedStates);
+        state.putSparseParcelableArray(KEY_STACKS, stacks);
+        state.putInt(KEY_SELECTED_ID, mCurrentSelectedId);
+        return state;
+    }
+
+    /**
+     * 存活的 Fragment 由 FragmentManager 保存，这里只记录 Tag ，已移除的记录保存的状态
+     */
+    private static Bundle saveStack(ArrayList<StackEntry> stack) {
+        int size = stack.size();
+        String[] classNames = new String[size];
+        String[] tags = new String[size];
+        Bundle[] args = new Bundle[size];
+        Fragment.SavedState[] savedStates = new Fragment.SavedState[size];
+        for (int i = 0; i < size; i++) {
+            StackEntry entry = stack.get(i);
+            classNames[i] = entry.className;
+            tags[i] = entry.tag;
+            args[i] = entry.args;
+            savedStates[i] = entry.savedState;
+        }
+        Bundle state = new Bundle();
+        state.putStringArray(KEY_CLASS_NAMES, classNames);
+        state.putStringArray(KEY_TAGS, tags);
+        state.putParcelableArray(KEY_ARGS, args);
+        state.putParcelableArray(KEY_SAVED_STATES, savedStates);
+        return state;
+    }
+
+    @Nullable
+    private ArrayList<StackEntry> restoreStack(Bundle state) {
+        String[] classNames = state.getStringArray(KEY_CLASS_NAMES);
+        String[] tags = state.getStringArray(KEY_TAGS);
+        Parcelable[] args = state.getParcelableArray(KEY_ARGS);
+        Parcelable[] savedStates = state.getParcelableArray(KEY_SAVED_STATES);
+        if (classNames == null || tags == null || args == null || savedStates == null) {
+            return null;
+        }
+        ArrayList<StackEntry> stack = new ArrayList<>(classNames.length);
+        for (int i = 0; i < classNames.length; i++) {
+            StackEntry entry = new StackEntry(classNames[i], tags[i], (Bundle) args[i]);
+            entry.savedState = (Fragment.SavedState) savedStates[i];
+            if (entry.savedState == null) {
+                // 没有保存状态的是存活的 Fragment ，已经由 FragmentManager 恢复
+                entry.fragment = mFragmentManager.findFragmentByTag(entry.tag);
+            }
+            stack.add(entry);
+        }
+        return stack;
+    }
+
+    /**
+     * @param mode 提交事务的方式，默认为 {@link #COMMIT}
+     */
+    public void setCommitMode(@CommitMode int mode) {
+        mCommitMode = mode;
+    }
+
+    /**
+     * @return 提交事务的方式
+     */
+    @CommitMode
+    public int getCommitMode() {
+        return mCommitMode;
+    }
+
+    /**
+     * @param listener 切换 Fragment 的监听
+     */
+    public void setOnFragmentSwitchListener(@Nullable OnFragmentSwitchListener listener) {
+        mOnFragmentSwitchListener = listener;
+    }
+
+    /**
+     * 隐藏的 Fragment 默认保持 RESUMED 状态，设置后隐藏的 Fragment 生命周期最多只到 state ，
+     * 只有展示的 Fragment 会进入 RESUMED 状态。已经隐藏的 Fragment 立即按新的设置调整，
+     * 状态已保存时在下一次切换中调整
+     *
+     * @param state {@link Lifecycle.State#STARTED} 、{@link Lifecycle.State#CREATED} ，
+     *              或者 {@link Lifecycle.State#RESUMED} 表示不限制
+     */
+    public void setHiddenMaxLifecycle(@NonNull Lifecycle.State state) {
+        checkHiddenMaxLifecycle(state);
+        mHiddenMaxLifecycle = state;
+        applyHiddenMaxLifecycle();
+    }
+
+    /**
+     * 单独设置某个 Item 对应 Fragment 隐藏时的生命周期，优先于 {@link #setHiddenMaxLifecycle(Lifecycle.State)}
+     *
+     * @param navigationItemId Item 的 Id
+     * @param state            {@link Lifecycle.State#STARTED} 、{@link Lifecycle.State#CREATED} ，
+     *                         或者 {@link Lifecycle.State#RESUMED} 表示不限制
+     */
+    public void setHiddenMaxLifecycle(@IdRes int navigationItemId, @NonNull Lifecycle.State state) {
+        checkHiddenMaxLifecycle(state);
+        mHiddenMaxLifecycleOverrides.put(navigationItemId, state);
+        applyHiddenMaxLifecycle();
+    }
+
+    private static void checkHiddenMaxLifecycle(Lifecycle.State state) {
+        if (state != Lifecycle.State.RESUMED && state != Lifecycle.State.STARTED
+                && state != Lifecycle.State.CREATED) {
+            throw new IllegalArgumentException("Hidden max lifecycle must be RESUMED, STARTED or CREATED, but was " + state);
+        }
+    }
+
+    private Lifecycle.State getHiddenMaxLifecycle(@IdRes int navigationItemId) {
+        return mHiddenMaxLifecycleOverrides.get(navigationItemId, mHiddenMaxLifecycle);
+    }
+
+    private boolean isHiddenLifecycleCapped() {
+        if (mHiddenMaxLifecycle != Lifecycle.State.RESUMED) {
+            return true;
+        }
+        for (int i = 0, size = mHiddenMaxLifecycleOverrides.size(); i < size; i++) {
+            if (mHiddenMaxLifecycleOverrides.valueAt(i) != Lifecycle.State.RESUMED) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 已经隐藏的 Fragment 立即按新的设置调整生命周期，状态已保存时留到下次切换
+     */
+    private void applyHiddenMaxLifecycle() {
+        if (mViewPager != null || mFragmentManager == null) {
             return;
         }
-        if (info.fragment.isAdded()) {
-            mFragmentManager.beginTransaction().show(info.fragment).commit();
+        if (mRestoring || mFragmentManager.isStateSaved()) {
+            mRecapHiddenLifecycle = true;
+            return;
+        }
+        FragmentTransaction transaction = mFragmentManager.beginTransaction();
+        transaction.setReorderingAllowed(true);
+        if (capHiddenFragments(transaction, mCurrentSelectedId)) {
+            commit(transaction);
+        }
+    }
+
+    /**
+     * 按当前设置重新设置所有隐藏的 Fragment 的生命周期，不再限制的恢复到 RESUMED
+     */
+    private boolean capHiddenFragments(FragmentTransaction transaction, int selectedId) {
+        boolean changed = false;
+        for (int i = 0, size = mInfoSparseArray.size(); i < size; i++) {
+            int id = mInfoSparseArray.keyAt(i);
+            Fragment fragment = getTopFragment(mInfoSparseArray.valueAt(i));
+            if (id == selectedId || fragment == null || !fragment.isAdded() || !fragment.isHidden()) {
+                continue;
+            }
+            Lifecycle.State state = getHiddenMaxLifecycle(id);
+            transaction.setMaxLifecycle(fragment, state);
+            changed = true;
+        }
+        return changed;
+    }
+
+    private boolean showFragment(FragmentTransaction transaction, FragmentInfo info) {
+        // 有返回栈时展示栈顶的 Fragment
+        return info != null && showLevel(transaction, info, getTopEntry(info));
+    }
+
+    /**
+     * @param top 要展示的层，为 null 时展示 Tab 绑定的 Fragment
+     */
+    private boolean showLevel(FragmentTransaction transaction, FragmentInfo info, @Nullable StackEntry top) {
+        if (mContainerViewId == View.NO_ID || mFragmentManager == null) {
+            return false;
+        }
+        Fragment fragment = top != null ? obtainEntryFragment(top) : obtainFragment(info);
+        if (fragment == null) {
+            return false;
+        }
+        if (fragment.isAdded()) {
+            if (!fragment.isHidden()) {
+                return false;
+            }
+            transaction.show(fragment);
         } else {
-            mFragmentManager.beginTransaction().add(mContainerViewId, info.fragment, info.tag).commit();
+            transaction.add(mContainerViewId, fragment, top != null ? top.tag : info.tag);
         }
+        if (isHiddenLifecycleCapped()) {
+            transaction.setMaxLifecycle(fragment, Lifecycle.State.RESUMED);
+        }
+        return true;
     }
 
-    private void hideFragment(FragmentInfo info) {
+    private boolean hideFragment(FragmentTransaction transaction, @IdRes int navigationItemId) {
+        FragmentInfo info = mInfoSparseArray.get(navigationItemId);
         if (mFragmentManager == null || info == null) {
-            return;
+            return false;
         }
-        if (info.fragment == null) {
-            return;
+        Fragment fragment = getTopFragment(info);
+        if (fragment == null) {
+            return false;
         }
-        if (!info.fragment.isHidden()) {
-            mFragmentManager.beginTransaction().hide(info.fragment).commit();
+        if (fragment.isAdded() && !fragment.isHidden()) {
+            transaction.hide(fragment);
+            Lifecycle.State state = getHiddenMaxLifecycle(navigationItemId);
+            if (state != Lifecycle.State.RESUMED) {
+                transaction.setMaxLifecycle(fragment, state);
+            }
+            return true;
         }
+        return false;
     }
 
     private void switchToFragment(int selectedId) {
-        hideFragment(mInfoSparseArray.get(mCurrentSelectedId));
-        showFragment(mInfoSparseArray.get(selectedId));
+        if (mRestoring) {
+            mPendingSelectedId = selectedId;
+            return;
+        }
+        boolean traced = NavigationMetrics.beginSection(NavigationMetrics.SECTION_SWITCH);
+        int previousId = mCurrentSelectedId;
+        int transactionCount = 0;
+        long startNanos = mNavigationBar.consumeSelectStartNanos();
+        if (startNanos == 0) {
+            startNanos = System.nanoTime();
+        }
+        FragmentInfo selectedInfo = mInfoSparseArray.get(selectedId);
+        boolean cold = selectedInfo != null && !isLive(getTopFragment(selectedInfo));
+        if (mViewPager != null) {
+            int position = mPages.indexOf(selectedInfo);
+            if (position >= 0 && mViewPager.getCurrentItem() != position) {
+                mViewPager.setCurrentItem(position, false);
+            }
+        } else if (mFragmentManager != null) {
+            // 隐藏和展示放在同一个事务中，避免一次切换提交两个事务
+            FragmentTransaction transaction = mFragmentManager.beginTransaction();
+            transaction.setReorderingAllowed(true);
+            boolean changed = false;
+            if (previousId != selectedId) {
+                changed = hideFragment(transaction, previousId);
+            }
+            changed |= showFragment(transaction, selectedInfo);
+            changed |= trimBackStacks(transaction, previousId, selectedId);
+            changed |= trimFragments(transaction, selectedId);
+            if (mRecapHiddenLifecycle) {
+                mRecapHiddenLifecycle = false;
+                changed |= capHiddenFragments(transaction, selectedId);
+            }
+            if (changed) {
+                commit(transaction);
+                transactionCount = 1;
+            }
+        }
         mCurrentSelectedId = selectedId;
+        if (selectedInfo != null) {
+            selectedInfo.lastUsed = ++mUseClock;
+            if (mLatencyTracker != null && previousId != selectedId) {
+                mLatencyTracker.start(selectedInfo, startNanos, cold);
+            }
+        }
+        relaxMemoryPressure();
+        updateBackCallback();
+        if (mUsageStats != null && selectedInfo != null && previousId != selectedId) {
+            mUsageStats.increment(selectedInfo.tag);
+            schedulePrewarm();
+        }
+        if (mOnFragmentSwitchListener != null) {
+            mOnFragmentSwitchListener.onFragmentSwitched(previousId, selectedId, transactionCount);
+        }
+        NavigationMetrics.endSection(traced);
+    }
+
+    /**
+     * 最多保留的 Fragment 数量，超过时最久未使用的 Fragment 会保存状态后移除，再次选中时从保存的状态恢复。
+     * 系统通过 {@link ComponentCallbacks2#onTrimMemory(int)} 报告内存紧张时会自动减小这个数量
+     *
+     * @param maxLiveFragments 最多保留的 Fragment 数量，至少为 1
+     */
+    public void setMaxLiveFragments(int maxLiveFragments) {
+        mMaxLiveFragments = Math.max(1, maxLiveFragments);
+        mPressureLimit = mMaxLiveFragments;
+        if (mMemoryCallbacks == null) {
+            mMemoryCallbacks = new MemoryCallbacks();
+            mNavigationBar.addOnAttachStateChangeListener(mMemoryCallbacks);
+            if (ViewCompat.isAttachedToWindow(mNavigationBar)) {
+                mMemoryCallbacks.onViewAttachedToWindow(mNavigationBar);
+            }
+        }
+    }
+
+    /**
+     * @return 最多保留的 Fragment 数量
+     */
+    public int getMaxLiveFragments() {
+        return mMaxLiveFragments;
+    }
+
+    private int getLiveLimit() {
+        if (mViewPager != null) {
+            // 由 ViewPager2 管理 Fragment 的数量
+            return Integer.MAX_VALUE;
+        }
+        return Math.min(mMaxLiveFragments, mPressureLimit);
+    }
+
+    private int countLiveFragments(int keepId) {
+        int count = 0;
+        for (int i = 0, size = mInfoSparseArray.size(); i < size; i++) {
+            FragmentInfo info = mInfoSparseArray.valueAt(i);
+            if (mInfoSparseArray.keyAt(i) == keepId || isLive(getTopFragment(info))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 移除超出数量的 Tab 的 Fragment ，移除前保存状态，返回栈中的 Fragment 一起移除
+     */
+    private boolean trimFragments(FragmentTransaction transaction, int keepId) {
+        int limit = getLiveLimit();
+        if (limit == Integer.MAX_VALUE) {
+            return false;
+        }
+        int liveCount = countLiveFragments(keepId);
+        boolean changed = false;
+        while (liveCount > limit) {
+            FragmentInfo eldest = null;
+            for (int i = 0, size = mInfoSparseArray.size(); i < size; i++) {
+                FragmentInfo info = mInfoSparseArray.valueAt(i);
+                if (mInfoSparseArray.keyAt(i) == keepId || !isLive(getTopFragment(info))) {
+                    continue;
+                }
+                if (eldest == null || info.lastUsed < eldest.lastUsed) {
+                    eldest = info;
+                }
+            }
+            if (eldest == null) {
+                break;
+            }
+            trimLevels(transaction, eldest, 0);
+            liveCount--;
+            changed = true;
+        }
+        return changed;
+    }
+
+    private void onMemoryPressure(int level) {
+        int live = Math.min(mMaxLiveFragments, countLiveFragments(mCurrentSelectedId));
+        int limit;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            limit = 1;
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            limit = live / 2;
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            limit = live - 1;
+        } else {
+            return;
+        }
+        mPressureLimit = Math.max(1, Math.min(mPressureLimit, limit));
+        mLastPressureTime = SystemClock.uptimeMillis();
+
+        if (mFragmentManager == null || mFragmentManager.isStateSaved()) {
+            // 状态已保存时无法提交事务，下次切换时再移除
+            return;
+        }
+        FragmentTransaction transaction = mFragmentManager.beginTransaction();
+        transaction.setReorderingAllowed(true);
+        if (trimFragments(transaction, mCurrentSelectedId)) {
+            commit(transaction);
+        }
+    }
+
+    /**
+     * 距离上次内存紧张足够久之后，每次切换把数量恢复一个
+     */
+    private void relaxMemoryPressure() {
+        if (mPressureLimit < mMaxLiveFragments
+                && SystemClock.uptimeMillis() - mLastPressureTime > PRESSURE_RECOVERY_MILLIS) {
+            mPressureLimit++;
+        }
+    }
+
+    /**
+     * 统计从点击 Item 到目标 Fragment 展示后第一帧的耗时，按 Item 分别记录首次创建和已创建两种情况
+     *
+     * @param listener 切换耗时的监听，传 null 时只记录直方图
+     */
+    public void setOnSwitchLatencyListener(@Nullable OnSwitchLatencyListener listener) {
+        enableSwitchLatencyTracking();
+        mLatencyTracker.mListener = listener;
+    }
+
+    /**
+     * 开启切换耗时统计
+     */
+    public void enableSwitchLatencyTracking() {
+        if (mLatencyTracker == null) {
+            mLatencyTracker = new LatencyTracker();
+        }
+    }
+
+    /**
+     * @param navigationItemId Item 的 Id
+     * @param cold             true 为首次创建 Fragment 时的切换，false 为 Fragment 已存在时的切换
+     * @return 切换耗时的直方图，未绑定或者未开启统计时为 null
+     */
+    @Nullable
+    public SwitchLatencyHistogram getSwitchLatencyHistogram(@IdRes int navigationItemId, boolean cold) {
+        FragmentInfo info = mInfoSparseArray.get(navigationItemId);
+        if (info == null || mLatencyTracker == null) {
+            return null;
+        }
+        return info.getLatencyHistogram(cold);
+    }
+
+    /**
+     * @return 状态已保存后只有 {@link #COMMIT_ALLOWING_STATE_LOSS} 可以提交
+     */
+    private boolean canCommit() {
+        return mCommitMode == COMMIT_ALLOWING_STATE_LOSS || !mFragmentManager.isStateSaved();
+    }
+
+    private void commit(FragmentTransaction transaction) {
+        NavigationMetrics.countTransaction();
+        switch (mCommitMode) {
+            case COMMIT_NOW:
+                transaction.commitNow();
+                break;
+            case COMMIT_ALLOWING_STATE_LOSS:
+                transaction.commitAllowingStateLoss();
+                break;
+            case COMMIT:
+            default:
+                transaction.commit();
+                break;
+        }
+    }
+
+    /**
+     * 查找已存在的 Fragment ，不存在时创建
+     */
+    @Nullable
+    private Fragment obtainFragment(FragmentInfo info) {
+        if (info.fragment == null && info.savedState == null) {
+            // 被移除的 Fragment 可能还在等待执行的事务中，有保存的状态时不再按 Tag 查找
+            info.fragment = mFragmentManager.findFragmentByTag(info.tag);
+        }
+        if (info.fragment == null) {
+            info.fragment = createFragment(info);
+        }
+        return info.fragment;
+    }
+
+    @Nullable
+    private Fragment createFragment(FragmentInfo info) {
+        boolean traced = NavigationMetrics.beginSection(NavigationMetrics.SECTION_CREATE_FRAGMENT);
+        Fragment fragment = null;
+        if (info.creator != null) {
+            fragment = info.creator.createFragment();
+        } else if (info.clazz != null) {
+            // 交给 FragmentFactory 创建，应用可以设置自己的 FragmentFactory 避免反射
+            fragment = mFragmentManager.getFragmentFactory().instantiate(
+                    info.clazz.getClassLoader(), info.clazz.getName());
+        }
+        if (fragment != null && info.args != null) {
+            fragment.setArguments(info.args);
+        }
+        if (fragment != null && info.savedState != null) {
+            fragment.setInitialSavedState(info.savedState);
+            info.savedState = null;
+        }
+        NavigationMetrics.endSection(traced);
+        if (fragment != null) {
+            NavigationMetrics.countFragmentCreation();
+        }
+        return fragment;
+    }
+
+    /**
+     * 第一帧之后利用主线程空闲时间，按选中次数从高到低预先创建未选中的 Fragment 并隐藏，
+     * 首次点击对应 Tab 时不再需要创建和加载布局
+     *
+     * @param maxTabs          最多预热的 Tab 数量
+     * @param idleBudgetMillis 预热最多占用的空闲时间，单位毫秒
+     */
+    public void enablePrewarm(int maxTabs, long idleBudgetMillis) {
+        mPrewarmMaxTabs = maxTabs;
+        mPrewarmBudgetMillis = idleBudgetMillis;
+        if (mUsageStats == null) {
+            mUsageStats = new TabUsageStats(mNavigationBar.getContext());
+            // 在后台读取文件，读取完成后再开始预热
+            mUsageStats.load(new Runnable() {
+                @Override
+                public void run() {
+                    schedulePrewarm();
+                }
+            });
+        }
+        if (mPrewarmer == null) {
+            mPrewarmer = new Prewarmer();
+            // View.post 的任务在第一次布局之后执行
+            mNavigationBar.post(mPrewarmer);
+        }
+    }
+
+    private void schedulePrewarm() {
+        if (mPrewarmer != null && mPrewarmer.mStarted) {
+            mPrewarmer.register();
+        }
+    }
+
+    @Nullable
+    private FragmentInfo nextPrewarmCandidate() {
+        if (countLiveFragments(mCurrentSelectedId) >= getLiveLimit()) {
+            return null;
+        }
+        FragmentInfo candidate = null;
+        int candidateCount = 0;
+        for (int i = 0, size = mInfoSparseArray.size(); i < size; i++) {
+            if (mInfoSparseArray.keyAt(i) == mCurrentSelectedId) {
+                continue;
+            }
+            FragmentInfo info = mInfoSparseArray.valueAt(i);
+            if (isLive(info.fragment) || hasBackStack(info)) {
+                continue;
+            }
+            int count = mUsageStats.getCount(info.tag);
+            if (count > candidateCount) {
+                candidate = info;
+                candidateCount = count;
+            }
+        }
+        return candidate;
+    }
+
+    private boolean prewarm(FragmentInfo info) {
+        if (mContainerViewId == View.NO_ID || mFragmentManager.isStateSaved()) {
+            return false;
+        }
+        Fragment fragment = obtainFragment(info);
+        if (fragment == null || fragment.isAdded()) {
+            return false;
+        }
+        FragmentTransaction transaction = mFragmentManager.beginTransaction()
+                .setReorderingAllowed(true)
+                .add(mContainerViewId, fragment, info.tag)
+                .hide(fragment);
+        Lifecycle.State state = getHiddenMaxLifecycle(info.id);
+        if (state != Lifecycle.State.RESUMED) {
+            transaction.setMaxLifecycle(fragment, state);
+        }
+        // 立即执行，让创建和加载布局的开销落在当前空闲时间内
+        transaction.commitNow();
+        NavigationMetrics.countTransaction();
+        return true;
+    }
+
+    /**
+     * 延迟绑定模式下，绑定时不创建 Fragment ，直到 Item 第一次被选中
+     *
+     * @param lazy 是否延迟创建 Fragment
+     */
+    public void setLazyBinding(boolean lazy) {
+        mLazyBinding = lazy;
+    }
+
+    /**
+     * @return 是否延迟创建 Fragment
+     */
+    public boolean isLazyBinding() {
+        return mLazyBinding;
     }
 
     /**
@@ -85,7 +846,7 @@ public class NavigationManager {
      * @param fragmentClass    Fragment 的类
      * @param tag              Fragment 的 Tag
      */
-    public void bindFragment(@IdRes int navigationItemId, Class fragmentClass, String tag) {
+    public void bindFragment(@IdRes int navigationItemId, Class<? extends Fragment> fragmentClass, String tag) {
         bindFragment(navigationItemId, fragmentClass, tag, null);
     }
 
@@ -95,21 +856,62 @@ public class NavigationManager {
      * @param tag              Fragment 的 Tag
      * @param args             Fragment 的参数
      */
-    public void bindFragment(@IdRes int navigationItemId, Class fragmentClass, String tag, Bundle args) {
-        FragmentInfo info = new FragmentInfo(fragmentClass, tag, args);
-        info.fragment = mFragmentManager.findFragmentByTag(info.tag);
-        if (info.fragment == null) {
-            try {
-                info.fragment = (Fragment) info.clazz.newInstance();
-                if (info.args != null) {
-                    info.fragment.setArguments(info.args);
-                }
-            } catch (InstantiationException e) {
-                e.printStackTrace();
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
+    public void bindFragment(@IdRes int navigationItemId, Class<? extends Fragment> fragmentClass, String tag, Bundle args) {
+        bindFragment(navigationItemId, new FragmentInfo(fragmentClass, null, tag, args));
+    }
+
+    /**
+     * @param navigationItemId Item 的 Id
+     * @param creator          创建 Fragment 的工厂
+     * @param tag              Fragment 的 Tag
+     */
+    public void bindFragment(@IdRes int navigationItemId, FragmentCreator creator, String tag) {
+        bindFragment(navigationItemId, new FragmentInfo(null, creator, tag, null));
+    }
+
+    /**
+     * 按路由表绑定所有 Tab ，创建 Fragment 时不使用反射
+     *
+     * @param table 路由表，一般由 navigation-compiler 根据 {@link NavigationTabs} 生成
+     */
+    public void bindTabs(NavigationTabTable table) {
+        for (int i = 0, count = table.getTabCount(); i < count; i++) {
+            bindFragment(table.getItemId(i), new TableFragmentCreator(table, i), table.getTag(i));
+        }
+    }
+
+    private void bindFragment(@IdRes int navigationItemId, FragmentInfo info) {
+        info.id = navigationItemId;
+        if (mViewPager != null) {
+            // 由 ViewPager2 的 Adapter 创建 Fragment
+            FragmentInfo old = mInfoSparseArray.get(navigationItemId);
+            int position = mPages.indexOf(old);
+            if (position >= 0) {
+                mPages.set(position, info);
+            } else {
+                mPages.add(info);
+            }
+            mInfoSparseArray.put(navigationItemId, info);
+            mViewPager.getAdapter().notifyDataSetChanged();
+            if (mNavigationBar.getSelectedNavigationItemId() == navigationItemId) {
+                switchToFragment(navigationItemId);
+            }
+            return;
+        }
+        if (mRestoredTags != null && info.tag != null && info.tag.equals(mRestoredTags.get(navigationItemId))) {
+            // 恢复时直接关联 FragmentManager 已经恢复的 Fragment
+            info.fragment = mFragmentManager.findFragmentByTag(info.tag);
+            if (info.fragment == null && mRestoredSavedStates != null) {
+                info.savedState = mRestoredSavedStates.get(navigationItemId);
+            }
+            Bundle stack = mRestoredStacks == null ? null : mRestoredStacks.get(navigationItemId);
+            if (stack != null) {
+                info.stack = restoreStack(stack);
             }
         }
+        if (!mLazyBinding) {
+            obtainFragment(info);
+        }
         mInfoSparseArray.put(navigationItemId, info);
         if (mNavigationBar.getSelectedNavigationItemId() == navigationItemId) {
             switchToFragment(navigationItemId);
@@ -118,10 +920,262 @@ public class NavigationManager {
 
     /**
      * @param navigationItemId Item 的 Id
-     * @return 关联的 Fragment
+     * @return 关联的 Fragment ，延迟绑定模式下 Item 未被选中过或者 Fragment 已被移除时为 null
      */
+    @Nullable
     public <T extends Fragment> T getFragment(@IdRes int navigationItemId) {
-        return (T) mInfoSparseArray.get(navigationItemId).fragment;
+        FragmentInfo info = mInfoSparseArray.get(navigationItemId);
+        return info == null ? null : (T) info.fragment;
+    }
+
+    /**
+     * 每个 Tab 有自己的返回栈，返回栈中最多保留 maxDepth 层存活的 Fragment（包括 Tab 绑定的 Fragment），
+     * 更深的层保存状态后移除，返回到该层时再从保存的状态恢复。
+     * 最近选中的两个 Tab 之外，其他 Tab 只保留栈顶的 Fragment ，多个 Tab 都有很深的返回栈时内存占用也有上限
+     *
+     * @param maxDepth 每个 Tab 最多保留的存活层数，至少为 1 ，默认为 3
+     */
+    public void setMaxBackStackDepth(int maxDepth) {
+        mMaxBackStackDepth = Math.max(1, maxDepth);
+        FragmentInfo info = mInfoSparseArray.get(mCurrentSelectedId);
+        if (info == null || !hasBackStack(info) || mFragmentManager == null || mFragmentManager.isStateSaved()) {
+            return;
+        }
+        FragmentTransaction transaction = mFragmentManager.beginTransaction();
+        transaction.setReorderingAllowed(true);
+        if (trimLevels(transaction, info, mMaxBackStackDepth)) {
+            commit(transaction);
+        }
+    }
+
+    /**
+     * @return 每个 Tab 最多保留的存活层数
+     */
+    public int getMaxBackStackDepth() {
+        return mMaxBackStackDepth;
+    }
+
+    /**
+     * @param fragment 压入当前选中 Tab 返回栈的 Fragment
+     */
+    public void pushFragment(@NonNull Fragment fragment) {
+        pushFragment(fragment, null);
+    }
+
+    /**
+     * 把 Fragment 压入当前选中 Tab 的返回栈并展示，按返回键时先弹出当前 Tab 的返回栈。
+     * 移除后恢复时通过 FragmentManager 的 {@code FragmentFactory} 按类名重新创建，Fragment 需要有无参的构造方法
+     *
+     * @param fragment 压入的 Fragment
+     * @param tag      Fragment 的 Tag ，为 null 时按 Tab 的 Tag 和层数生成
+     * @throws IllegalStateException 没有选中绑定的 Item ，或者状态已保存并且提交方式不是 {@link #COMMIT_ALLOWING_STATE_LOSS}
+     */
+    public void pushFragment(@NonNull Fragment fragment, @Nullable String tag) {
+        if (mViewPager != null) {
+            throw new IllegalStateException("Back stacks are not supported with ViewPager2");
+        }
+        FragmentInfo info = mInfoSparseArray.get(mCurrentSelectedId);
+        if (info == null || mFragmentManager == null) {
+            throw new IllegalStateException("No fragment is bound to the selected item " + mCurrentSelectedId);
+        }
+        if (!canCommit()) {
+            throw new IllegalStateException("Can not push a fragment after onSaveInstanceState");
+        }
+        if (info.stack == null) {
+            info.stack = new ArrayList<>();
+        }
+        if (tag == null) {
+            tag = info.tag + ":" + (info.stack.size() + 1);
+        }
+        FragmentTransaction transaction = mFragmentManager.beginTransaction();
+        transaction.setReorderingAllowed(true);
+        hideFragment(transaction, mCurrentSelectedId);
+        transaction.add(mContainerViewId, fragment, tag);
+        // 压入的 Fragment 占一层
+        trimLevels(transaction, info, mMaxBackStackDepth - 1);
+        commit(transaction);
+        StackEntry entry = new StackEntry(fragment.getClass().getName(), tag, fragment.getArguments());
+        entry.fragment = fragment;
+        info.stack.add(entry);
+        info.lastUsed = ++mUseClock;
+        updateBackCallback();
+    }
+
+    /**
+     * 弹出当前选中 Tab 返回栈的栈顶，展示下一层的 Fragment
+     *
+     * @return 返回栈为空，或者状态已保存后无法提交时为 false
+     */
+    public boolean popBackStack() {
+        FragmentInfo info = mInfoSparseArray.get(mCurrentSelectedId);
+        if (info == null || !hasBackStack(info) || mFragmentManager == null || !canCommit()) {
+            return false;
+        }
+        FragmentTransaction transaction = mFragmentManager.beginTransaction();
+        transaction.setReorderingAllowed(true);
+        int size = info.stack.size();
+        StackEntry top = info.stack.get(size - 1);
+        if (top.fragment != null) {
+            transaction.remove(top.fragment);
+        }
+        showLevel(transaction, info, size > 1 ? info.stack.get(size - 2) : null);
+        commit(transaction);
+        info.stack.remove(size - 1);
+        info.lastUsed = ++mUseClock;
+        updateBackCallback();
+        return true;
+    }
+
+    /**
+     * @param navigationItemId Item 的 Id
+     * @return Tab 返回栈中压入的 Fragment 数量，不包括 Tab 绑定的 Fragment
+     */
+    public int getBackStackDepth(@IdRes int navigationItemId) {
+        FragmentInfo info = mInfoSparseArray.get(navigationItemId);
+        return info == null || info.stack == null ? 0 : info.stack.size();
+    }
+
+    /**
+     * @param navigationItemId Item 的 Id
+     * @return Tab 当前展示的 Fragment ，即返回栈的栈顶，返回栈为空时为绑定的 Fragment ，已被移除时为 null
+     */
+    @Nullable
+    public <T extends Fragment> T getTopFragment(@IdRes int navigationItemId) {
+        FragmentInfo info = mInfoSparseArray.get(navigationItemId);
+        return info == null ? null : (T) getTopFragment(info);
+    }
+
+    private static boolean hasBackStack(FragmentInfo info) {
+        return info.stack != null && !info.stack.isEmpty();
+    }
+
+    @Nullable
+    private static StackEntry getTopEntry(FragmentInfo info) {
+        return hasBackStack(info) ? info.stack.get(info.stack.size() - 1) : null;
+    }
+
+    @Nullable
+    private static Fragment getTopFragment(FragmentInfo info) {
+        StackEntry top = getTopEntry(info);
+        return top != null ? top.fragment : info.fragment;
+    }
+
+    private static boolean isLive(@Nullable Fragment fragment) {
+        return fragment != null && fragment.isAdded();
+    }
+
+    @NonNull
+    private Fragment obtainEntryFragment(StackEntry entry) {
+        if (entry.fragment == null) {
+            boolean traced = NavigationMetrics.beginSection(NavigationMetrics.SECTION_CREATE_FRAGMENT);
+            entry.fragment = mFragmentManager.getFragmentFactory().instantiate(
+                    mNavigationBar.getContext().getClassLoader(), entry.className);
+            if (entry.args != null) {
+                entry.fragment.setArguments(entry.args);
+            }
+            if (entry.savedState != null) {
+                entry.fragment.setInitialSavedState(entry.savedState);
+                entry.savedState = null;
+            }
+            NavigationMetrics.endSection(traced);
+            NavigationMetrics.countFragmentCreation();
+        }
+        return entry.fragment;
+    }
+
+    /**
+     * 从栈底开始保存状态并移除 Fragment ，只保留栈顶的 liveLevels 层，Tab 绑定的 Fragment 是最底层
+     */
+    private boolean trimLevels(FragmentTransaction transaction, FragmentInfo info, int liveLevels) {
+        int stackSize = info.stack == null ? 0 : info.stack.size();
+        int saveCount = stackSize + 1 - liveLevels;
+        if (saveCount <= 0) {
+            return false;
+        }
+        boolean changed = false;
+        if (isLive(info.fragment)) {
+            info.savedState = mFragmentManager.saveFragmentInstanceState(info.fragment);
+            transaction.remove(info.fragment);
+            info.fragment = null;
+            changed = true;
+        }
+        for (int i = 0; i < saveCount - 1; i++) {
+            StackEntry entry = info.stack.get(i);
+            // 还在等待执行的事务中添加的 Fragment 无法保存状态，留到下次再移除
+            if (isLive(entry.fragment)) {
+                entry.savedState = mFragmentManager.saveFragmentInstanceState(entry.fragment);
+                transaction.remove(entry.fragment);
+                entry.fragment = null;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 切换前后选中的 Tab 保留返回栈中的 Fragment ，其他 Tab 只保留栈顶
+     */
+    private boolean trimBackStacks(FragmentTransaction transaction, int previousId, int selectedId) {
+        boolean changed = false;
+        for (int i = 0, size = mInfoSparseArray.size(); i < size; i++) {
+            int id = mInfoSparseArray.keyAt(i);
+            FragmentInfo info = mInfoSparseArray.valueAt(i);
+            if (id != previousId && id != selectedId && hasBackStack(info)) {
+                changed |= trimLevels(transaction, info, 1);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * 当前选中 Tab 的返回栈不为空时拦截返回键
+     */
+    private void updateBackCallback() {
+        boolean enabled = getBackStackDepth(mCurrentSelectedId) > 0;
+        if (mBackCallback == null) {
+            if (!enabled) {
+                return;
+            }
+            OnBackPressedDispatcherOwner owner = findOnBackPressedDispatcherOwner(mNavigationBar.getContext());
+            if (owner == null) {
+                return;
+            }
+            mBackCallback = new BackCallback();
+            owner.getOnBackPressedDispatcher().addCallback(owner, mBackCallback);
+        }
+        mBackCallback.setEnabled(enabled);
+    }
+
+    @Nullable
+    private static OnBackPressedDispatcherOwner findOnBackPressedDispatcherOwner(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof OnBackPressedDispatcherOwner) {
+                return (OnBackPressedDispatcherOwner) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    public interface FragmentCreator {
+
+        /**
+         * @return 新创建的 Fragment
+         */
+        @NonNull
+        Fragment createFragment();
+
+    }
+
+    public interface OnFragmentSwitchListener {
+
+        /**
+         * @param previousId       切换前选中 Item 的 Id
+         * @param selectedId       切换后选中 Item 的 Id
+         * @param transactionCount 本次切换提交的事务数量
+         */
+        void onFragmentSwitched(@IdRes int previousId, @IdRes int selectedId, int transactionCount);
+
     }
 
     private class SelectedIdChangeListener implements NavigationBar.OnSelectedChangeListener {
@@ -131,17 +1185,272 @@ public class NavigationManager {
         }
     }
 
-    private class FragmentInfo {
+    private class Prewarmer implements Runnable, MessageQueue.IdleHandler {
+
+        private boolean mStarted;
+        private boolean mRegistered;
+        private int mWarmedCount;
+        private long mSpentMillis;
+
+        @Override
+        public void run() {
+            mStarted = true;
+            register();
+        }
+
+        void register() {
+            if (!mRegistered) {
+                mRegistered = true;
+                Looper.myQueue().addIdleHandler(this);
+            }
+        }
+
+        @Override
+        public boolean queueIdle() {
+            if (!mUsageStats.isLoaded()) {
+                // 读取完成后会重新注册
+                mRegistered = false;
+                return false;
+            }
+            if (mWarmedCount < mPrewarmMaxTabs && mSpentMillis < mPrewarmBudgetMillis) {
+                FragmentInfo info = nextPrewarmCandidate();
+                if (info != null) {
+                    long start = SystemClock.uptimeMillis();
+                    if (prewarm(info)) {
+                        mWarmedCount++;
+                        mSpentMillis += SystemClock.uptimeMillis() - start;
+                        // 每次空闲只预热一个，把剩余的留给下一次空闲
+                        return true;
+                    }
+                }
+            }
+            if (mUsageStats.isDirty()) {
+                mUsageStats.save();
+            }
+            mRegistered = false;
+            return false;
+        }
+    }
+
+    private class StateProvider implements SavedStateRegistry.SavedStateProvider {
+        @NonNull
+        @Override
+        public Bundle saveState() {
+            return NavigationManager.this.saveState();
+        }
+    }
 
-        private Class clazz;
-        private String tag;
-        private Bundle args;
+    private class BackCallback extends OnBackPressedCallback {
+
+        BackCallback() {
+            super(false);
+        }
+
+        @Override
+        public void handleOnBackPressed() {
+            popBackStack();
+        }
+    }
+
+    private class MemoryCallbacks implements ComponentCallbacks2, View.OnAttachStateChangeListener {
+
+        private Context mRegisteredContext;
+
+        @Override
+        public void onViewAttachedToWindow(View v) {
+            if (mRegisteredContext == null) {
+                mRegisteredContext = v.getContext().getApplicationContext();
+                mRegisteredContext.registerComponentCallbacks(this);
+            }
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(View v) {
+            if (mRegisteredContext != null) {
+                mRegisteredContext.unregisterComponentCallbacks(this);
+                mRegisteredContext = null;
+            }
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+            onMemoryPressure(level);
+        }
+
+        @Override
+        public void onLowMemory() {
+            onMemoryPressure(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+
+        }
+    }
+
+    private static class TableFragmentCreator implements FragmentCreator {
+
+        private final NavigationTabTable mTable;
+        private final int mIndex;
+
+        TableFragmentCreator(NavigationTabTable table, int index) {
+            mTable = table;
+            mIndex = index;
+        }
+
+        @NonNull
+        @Override
+        public Fragment createFragment() {
+            return mTable.createFragment(mIndex);
+        }
+    }
+
+    private class TabPagerAdapter extends FragmentStateAdapter {
+
+        TabPagerAdapter(FragmentManager manager, Lifecycle lifecycle) {
+            super(manager, lifecycle);
+        }
+
+        @NonNull
+        @Override
+        public Fragment createFragment(int position) {
+            FragmentInfo info = mPages.get(position);
+            // Adapter 自己保存和恢复页面的状态，每次都创建新的 Fragment
+            info.fragment = NavigationManager.this.createFragment(info);
+            if (info.fragment == null) {
+                throw new IllegalStateException("Unable to create fragment for page " + position);
+            }
+            return info.fragment;
+        }
+
+        @Override
+        public int getItemCount() {
+            return mPages.size();
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return mPages.get(position).id;
+        }
+
+        @Override
+        public boolean containsItem(long itemId) {
+            for (int i = 0, size = mPages.size(); i < size; i++) {
+                if (mPages.get(i).id == itemId) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private class PageChangeCallback extends ViewPager2.OnPageChangeCallback {
+        @Override
+        public void onPageSelected(int position) {
+            mNavigationBar.select(mPages.get(position).id);
+        }
+    }
+
+    public interface OnSwitchLatencyListener {
+
+        /**
+         * @param navigationItemId Item 的 Id
+         * @param latencyNanos     切换耗时，单位纳秒
+         * @param cold             是否首次创建 Fragment
+         */
+        void onSwitchLatency(@IdRes int navigationItemId, long latencyNanos, boolean cold);
+
+    }
+
+    /**
+     * 事务提交之后向主线程发消息，消息在事务执行之后处理，此时 Fragment 的 View 已经添加，
+     * 再等到下一帧开始时记录耗时。所有对象提前创建，统计过程中不分配内存
+     */
+    private class LatencyTracker implements Runnable, Choreographer.FrameCallback {
+
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+        private OnSwitchLatencyListener mListener;
+        private FragmentInfo mPendingInfo;
+        private long mStartNanos;
+        private boolean mCold;
+
+        void start(FragmentInfo info, long startNanos, boolean cold) {
+            // 上一次切换还未完成时放弃上一次的统计
+            mHandler.removeCallbacks(this);
+            Choreographer.getInstance().removeFrameCallback(this);
+            mPendingInfo = info;
+            mStartNanos = startNanos;
+            mCold = cold;
+            mHandler.post(this);
+        }
+
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            FragmentInfo info = mPendingInfo;
+            mPendingInfo = null;
+            if (info == null) {
+                return;
+            }
+            long latency = System.nanoTime() - mStartNanos;
+            info.getLatencyHistogram(mCold).record(latency);
+            if (mListener != null) {
+                mListener.onSwitchLatency(info.id, latency, mCold);
+            }
+        }
+    }
+
+    private static class StackEntry {
+
+        private final String className;
+        private final String tag;
+        private final Bundle args;
+        private Fragment fragment;
+        private Fragment.SavedState savedState;
+
+        StackEntry(String className, String tag, Bundle args) {
+            this.className = className;
+            this.tag = tag;
+            this.args = args;
+        }
+    }
+
+    private static class FragmentInfo {
+
+        private final Class<? extends Fragment> clazz;
+        private final FragmentCreator creator;
+        private final String tag;
+        private final Bundle args;
+        private int id = View.NO_ID;
         private Fragment fragment;
+        private Fragment.SavedState savedState;
+        private ArrayList<StackEntry> stack;
+        private long lastUsed;
+        private SwitchLatencyHistogram coldLatency;
+        private SwitchLatencyHistogram warmLatency;
 
-        FragmentInfo(Class clazz, String tag, Bundle args) {
+        FragmentInfo(Class<? extends Fragment> clazz, FragmentCreator creator, String tag, Bundle args) {
             this.clazz = clazz;
+            this.creator = creator;
             this.tag = tag;
             this.args = args;
         }
+
+        SwitchLatencyHistogram getLatencyHistogram(boolean cold) {
+            if (cold) {
+                if (coldLatency == null) {
+                    coldLatency = new SwitchLatencyHistogram();
+                }
+                return coldLatency;
+            }
+            if (warmLatency == null) {
+                warmLatency = new SwitchLatencyHistogram();
+            }
+            return warmLatency;
+        }
     }
 }
@@ -0,0 +1,184 @@
+package com.zerdaket.navigation;
+
+import androidx.annotation.IdRes;
+import androidx.collection.SparseArrayCompat;
+import androidx.core.os.TraceCompat;
+
+/**
+ * 可选的统计：按 Item 统计测量、布局和绘制的次数，以及角标更新、选中分发、Fragment 创建和提交事务的次数，
+ * 同时把这些过程包在 {@link TraceCompat} 的区间中，在 systrace / Perfetto 中可以看到。
+ * <p>
+ * 默认关闭，关闭时每个统计点只读取一次静态变量。只能在主线程开启、关闭和读取。
+ */
+public final class NavigationMetrics {
+
+    static final String SECTION_ITEM_MEASURE = "NavigationItem#onMeasure";
+    static final String SECTION_ITEM_LAYOUT = "NavigationItem#onLayout";
+    static final String SECTION_ITEM_DRAW = "NavigationItem#draw";
+    static final String SECTION_BADGE = "NavigationBar#flushBadgeCounts";
+    static final String SECTION_SELECT = "NavigationBar#dispatchSelected";
+    static final String SECTION_SWITCH = "NavigationManager#switch";
+    static final String SECTION_CREATE_FRAGMENT = "NavigationManager#createFragment";
+
+    private static final int MEASURE = 0;
+    private static final int LAYOUT = 1;
+    private static final int DRAW = 2;
+
+    static boolean sEnabled;
+
+    private static final SparseArrayCompat<int[]> sItemCounts = new SparseArrayCompat<>();
+    private static int sBadgeUpdateCount;
+    private static int sSelectionDispatchCount;
+    private static int sFragmentCreationCount;
+    private static int sTransactionCount;
+
+    private NavigationMetrics() {
+    }
+
+    /**
+     * @param enabled 是否开启统计和 Trace 区间，关闭时保留已统计的数字
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * @param itemId Item 的 Id
+     * @return 开启统计后 Item 测量的次数
+     */
+    public static int getMeasureCount(@IdRes int itemId) {
+        return getItemCount(itemId, MEASURE);
+    }
+
+    /**
+     * @param itemId Item 的 Id
+     * @return 开启统计后 Item 布局的次数
+     */
+    public static int getLayoutCount(@IdRes int itemId) {
+        return getItemCount(itemId, LAYOUT);
+    }
+
+    /**
+     * @param itemId Item 的 Id
+     * @return 开启统计后 Item 绘制的次数，硬件加速时为重新记录绘制命令的次数
+     */
+    public static int getDrawCount(@IdRes int itemId) {
+        return getItemCount(itemId, DRAW);
+    }
+
+    /**
+     * @return 开启统计后角标更新的次数
+     */
+    public static int getBadgeUpdateCount() {
+        return sBadgeUpdateCount;
+    }
+
+    /**
+     * @return 开启统计后分发选中变化的次数
+     */
+    public static int getSelectionDispatchCount() {
+        return sSelectionDispatchCount;
+    }
+
+    /**
+     * @return 开启统计后 {@link NavigationManager} 创建 Fragment 的次数
+     */
+    public static int getFragmentCreationCount() {
+        return sFragmentCreationCount;
+    }
+
+    /**
+     * @return 开启统计后 {@link NavigationManager} 提交事务的次数
+     */
+    public static int getTransactionCount() {
+        return sTransactionCount;
+    }
+
+    /**
+     * 清除所有统计
+     */
+    public static void reset() {
+        sItemCounts.clear();
+        sBadgeUpdateCount = 0;
+        sSelectionDispatchCount = 0;
+        sFragmentCreationCount = 0;
+        sTransactionCount = 0;
+    }
+
+    /**
+     * @return 开启时进入 Trace 区间，结束时把返回值传给 {@link #endSection(boolean)}
+     */
+    static boolean beginSection(String sectionName) {
+        if (!sEnabled) {
+            return false;
+        }
+        TraceCompat.beginSection(sectionName);
+        return true;
+    }
+
+    /**
+     * @param began {@link #beginSection(String)} 的返回值，区间开始后关闭统计也能正确结束
+     */
+    static void endSection(boolean began) {
+        if (began) {
+            TraceCompat.endSection();
+        }
+    }
+
+    static void countMeasure(@IdRes int itemId) {
+        countItem(itemId, MEASURE);
+    }
+
+    static void countLayout(@IdRes int itemId) {
+        countItem(itemId, LAYOUT);
+    }
+
+    static void countDraw(@IdRes int itemId) {
+        countItem(itemId, DRAW);
+    }
+
+    static void countBadgeUpdate() {
+        if (sEnabled) {
+            sBadgeUpdateCount++;
+        }
+    }
+
+    static void countSelectionDispatch() {
+        if (sEnabled) {
+            sSelectionDispatchCount++;
+        }
+    }
+
+    static void countFragmentCreation() {
+        if (sEnabled) {
+            sFragmentCreationCount++;
+        }
+    }
+
+    static void countTransaction() {
+        if (sEnabled) {
+            sTransactionCount++;
+        }
+    }
+
+    private static void countItem(int itemId, int type) {
+        if (!sEnabled) {
+            return;
+        }
+        int[] counts = sItemCounts.get(itemId);
+        if (counts == null) {
+            counts = new int[3];
+            sItemCounts.put(itemId, counts);
+        }
+        counts[type]++;
+    }
+
+    private static int getItemCount(int itemId, int type) {
+        int[] counts = sItemCounts.get(itemId);
+        return counts == null ? 0 : counts[type];
+    }
+}
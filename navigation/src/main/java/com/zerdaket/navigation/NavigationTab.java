@@ -0,0 +1,31 @@
+package com.zerdaket.navigation;
+
+import androidx.annotation.IdRes;
+import androidx.fragment.app.Fragment;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 声明 Item 和 Fragment 的绑定关系，在 {@link NavigationTabs} 中使用
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target({})
+public @interface NavigationTab {
+
+    /**
+     * @return Item 的 Id
+     */
+    @IdRes int id();
+
+    /**
+     * @return Fragment 的类，需要有 public 的无参构造方法
+     */
+    Class<? extends Fragment> fragment();
+
+    /**
+     * @return Fragment 的 Tag ，不填时使用 Fragment 的类名
+     */
+    String tag() default "";
+}
@@ -0,0 +1,37 @@
+package com.zerdaket.navigation;
+
+import androidx.annotation.IdRes;
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+
+/**
+ * Tab 的路由表，一般由 navigation-compiler 根据 {@link NavigationTabs} 生成
+ */
+public interface NavigationTabTable {
+
+    /**
+     * @return Tab 的数量
+     */
+    int getTabCount();
+
+    /**
+     * @param index Tab 的位置
+     * @return Item 的 Id
+     */
+    @IdRes
+    int getItemId(int index);
+
+    /**
+     * @param index Tab 的位置
+     * @return Fragment 的 Tag
+     */
+    @NonNull
+    String getTag(int index);
+
+    /**
+     * @param index Tab 的位置
+     * @return 新创建的 Fragment
+     */
+    @NonNull
+    Fragment createFragment(int index);
+}
@@ -0,0 +1,20 @@
+package com.zerdaket.navigation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 在类上声明所有的 Tab ，navigation-compiler 会在同一个包下生成 {@code 类名_NavigationTabs} ，
+ * 通过 switch 直接创建 Fragment ，交给 {@link NavigationManager#bindTabs(NavigationTabTable)} 绑定
+ */
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface NavigationTabs {
+
+    /**
+     * @return 按顺序排列的 Tab
+     */
+    NavigationTab[] value();
+}
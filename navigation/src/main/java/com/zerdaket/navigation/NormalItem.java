@@ -5,16 +5,11 @@ import android.content.res.ColorStateList;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.ColorFilter;
-import android.graphics.Paint;
-import android.graphics.PixelFormat;
-import android.graphics.RectF;
 import android.graphics.drawable.Drawable;
-import android.graphics.drawable.ShapeDrawable;
-import android.graphics.drawable.shapes.OvalShape;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.Gravity;
+import android.view.View;
 import android.view.ViewGroup;
 import android.widget.FrameLayout;
 import android.widget.ImageView;
@@ -22,11 +17,14 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.ColorInt;
+import androidx.annotation.DrawableRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.appcompat.widget.AppCompatTextView;
+import androidx.annotation.VisibleForTesting;
+import androidx.appcompat.content.res.AppCompatResources;
 import androidx.core.content.res.ResourcesCompat;
-import androidx.core.graphics.drawable.DrawableCompat;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
 
 /**
  * Created by zerdaket on 2019-11-14.
@@ -35,33 +33,55 @@ public class NormalItem extends NavigationItem {
 
     private ItemInnerLayout mInnerLayout;
     private ColorStateList mTint;
-    private BadgeTextView mBadgeText;
+    private BadgeView mBadgeView;
+    /**
+     * 最近一次绑定的内容，再次绑定时只更新变化的部分
+     */
+    private NavigationItemSpec mSpec;
+    /**
+     * 未着色的原图，重新着色时总是基于原图，不对已经着色的图标再次包装
+     */
+    private Drawable mIconSource;
+    /**
+     * 图标的资源 Id ，不为 0 时着色后的图标从 {@link TintedIconCache} 获取
+     */
+    private int mIconRes;
+    private boolean mIconTint;
+    private IconAtlas mIconAtlas;
 
     public NormalItem(@NonNull Context context) {
-        this(context, null);
+        this(context, (AttributeSet) null);
     }
 
     public NormalItem(@NonNull Context context, @Nullable AttributeSet attrs) {
         this(context, attrs, 0);
     }
 
-    public NormalItem(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
-        super(context, attrs, defStyleAttr);
+    /**
+     * @param spec Item 的内容
+     */
+    NormalItem(@NonNull Context context, @NonNull NavigationItemSpec spec) {
+        super(context, null, 0);
+        initChildren(context);
 
-        mInnerLayout = new ItemInnerLayout(context);
-        addView(mInnerLayout);
+        // 不需要解析 XML 属性，直接使用默认值
+        mTint = ResourcesCompat.getColorStateList(getResources(), R.color.ui_selector_navi_item, context.getTheme());
+        setColorTint(mTint);
+        setBadgeColor(Color.RED);
+        setBadgeTextColor(Color.WHITE);
+        setId(spec.getId());
+        bind(spec);
+    }
 
-        mBadgeText = new BadgeTextView(context);
-        FrameLayout.LayoutParams layoutParams = new FrameLayout.LayoutParams(FrameLayout.LayoutParams.WRAP_CONTENT, FrameLayout.LayoutParams.WRAP_CONTENT);
-        layoutParams.setMargins(dp2px(16), 0, 0, dp2px(12));
-        layoutParams.gravity = Gravity.CENTER;
-        mBadgeText.setLayoutParams(layoutParams);
-        mBadgeText.setTextSize(10);
-        addView(mBadgeText);
+    public NormalItem(@NonNull Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        initChildren(context);
 
         final TypedArray array = context.obtainStyledAttributes(attrs, R.styleable.NormalItem);
 
-        Drawable drawable = array.getDrawable(R.styleable.NormalItem_ni_icon);
+        int iconRes = array.getResourceId(R.styleable.NormalItem_ni_icon, 0);
+
+        Drawable drawable = iconRes == 0 ? array.getDrawable(R.styleable.NormalItem_ni_icon) : null;
 
         String title = array.getString(R.styleable.NormalItem_ni_title);
 
@@ -81,7 +101,11 @@ public class NormalItem extends NavigationItem {
 
         mTint = ResourcesCompat.getColorStateList(getResources(), colorTint, context.getTheme());
 
-        setIcon(drawable, isIconTint);
+        if (iconRes == 0) {
+            setIcon(drawable, isIconTint);
+        } else {
+            setIconResource(iconRes, isIconTint);
+        }
         setTitle(title);
         setColorTint(mTint);
         if (showBadge) {
@@ -93,12 +117,56 @@ public class NormalItem extends NavigationItem {
         setBadgeTextColor(badgeTextColor);
     }
 
-    private Drawable wrap(Drawable drawable) {
-        if (drawable != null) {
-            drawable = DrawableCompat.wrap(drawable.mutate());
-            DrawableCompat.setTintList(drawable, mTint);
+    private void initChildren(Context context) {
+        mInnerLayout = new ItemInnerLayout(context);
+        addView(mInnerLayout);
+
+        mBadgeView = new BadgeView(context);
+        FrameLayout.LayoutParams layoutParams = new FrameLayout.LayoutParams(FrameLayout.LayoutParams.WRAP_CONTENT, FrameLayout.LayoutParams.WRAP_CONTENT);
+        layoutParams.setMargins(dp2px(16), 0, 0, dp2px(12));
+        layoutParams.gravity = Gravity.CENTER;
+        mBadgeView.setLayoutParams(layoutParams);
+        // 预先按小圆点设置固定尺寸
+        mBadgeView.setContent("");
+        mBadgeView.setVisibility(INVISIBLE);
+        addView(mBadgeView);
+    }
+
+    /**
+     * 按标题 TextView 的参数预先计算标题的排版，可以在后台线程调用，主线程测量时不再计算文字宽度
+     */
+    void precomputeTitle() {
+        TextView titleText = mInnerLayout.mTitleText;
+        CharSequence title = titleText.getText();
+        if (TextUtils.isEmpty(title)) {
+            return;
+        }
+        PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(titleText);
+        TextViewCompat.setPrecomputedText(titleText, PrecomputedTextCompat.create(title, params));
+    }
+
+    @Nullable
+    NavigationItemSpec getSpec() {
+        return mSpec;
+    }
+
+    void bind(NavigationItemSpec spec) {
+        NavigationItemSpec old = mSpec;
+        mSpec = spec;
+        if (old == null || old.getIconRes() != spec.getIconRes()) {
+            setIconResource(spec.getIconRes(), true);
+        }
+        if (old == null || !NavigationItemSpec.areEqual(old.getTitle(), spec.getTitle())) {
+            setTitle(spec.getTitle());
+        }
+        if (old == null || !NavigationItemSpec.areEqual(old.getBadge(), spec.getBadge())) {
+            String badge = spec.getBadge();
+            if (badge == null) {
+                clearBadge();
+            } else {
+                showBadge(badge);
+            }
         }
-        return drawable;
     }
 
     /**
@@ -113,8 +181,35 @@ public class NormalItem extends NavigationItem {
      * @param isIconTint 图标是否着色
      */
     public void setIcon(@Nullable Drawable drawable, boolean isIconTint) {
-        if (isIconTint) {
-            drawable = wrap(drawable);
+        mIconRes = 0;
+        mIconSource = drawable;
+        mIconTint = isIconTint;
+        updateIcon();
+    }
+
+    /**
+     * @param iconRes    Item 的图标，为 0 时不展示图标
+     * @param isIconTint 图标是否着色
+     */
+    private void setIconResource(@DrawableRes int iconRes, boolean isIconTint) {
+        mIconRes = iconRes;
+        mIconSource = null;
+        mIconTint = isIconTint;
+        updateIcon();
+    }
+
+    private void updateIcon() {
+        Drawable drawable;
+        if (mIconRes != 0) {
+            if (!mIconTint) {
+                drawable = AppCompatResources.getDrawable(getContext(), mIconRes);
+            } else if (mIconAtlas != null && mIconAtlas.canDraw(mIconRes, mTint)) {
+                drawable = mIconAtlas.newDrawable(mIconRes);
+            } else {
+                drawable = TintedIconCache.get(getContext(), mIconRes, mTint);
+            }
+        } else {
+            drawable = mIconTint ? TintedIconCache.tint(mIconSource, mTint) : mIconSource;
         }
         if (drawable == null) {
             mInnerLayout.setIconVisible(false);
@@ -125,6 +220,22 @@ public class NormalItem extends NavigationItem {
         mInnerLayout.resetTitleSize();
     }
 
+    @Override
+    int getAtlasIconRes() {
+        return mIconTint ? mIconRes : 0;
+    }
+
+    @Override
+    void applyIconAtlas(@Nullable IconAtlas atlas) {
+        if (mIconAtlas == atlas) {
+            return;
+        }
+        mIconAtlas = atlas;
+        if (mIconRes != 0 && mIconTint) {
+            updateIcon();
+        }
+    }
+
     /**
      * @param title Item 的标题
      */
@@ -150,7 +261,11 @@ public class NormalItem extends NavigationItem {
      */
     public void setColorTint(ColorStateList colorTint, boolean isIconTint) {
         mTint = colorTint;
-        setIcon(mInnerLayout.mIconView.getDrawable(), isIconTint);
+        // 不着色时保持图标不变；着色时从原图重新着色
+        if (isIconTint) {
+            mIconTint = true;
+            updateIcon();
+        }
         mInnerLayout.mTitleText.setTextColor(colorTint);
     }
 
@@ -158,42 +273,56 @@ public class NormalItem extends NavigationItem {
      * 展示小圆点
      */
     public void showBadge() {
-        mBadgeText.setVisibility(VISIBLE);
-        mBadgeText.setHighLightMode();
+        showBadge("");
     }
 
     /**
      * @param content 展示角标的内容
      */
     public void showBadge(String content) {
-        mBadgeText.setVisibility(VISIBLE);
-        if (TextUtils.isEmpty(content)) {
-            mBadgeText.setHighLightMode();
-        } else {
-            mBadgeText.setText(content);
-        }
+        mBadgeView.setContent(TextUtils.isEmpty(content) ? "" : content);
+        mBadgeView.setVisibility(VISIBLE);
+        NavigationMetrics.countBadgeUpdate();
     }
 
     /**
      * @param color 角标字体颜色
      */
     public void setBadgeTextColor(@ColorInt int color) {
-        mBadgeText.setTextColor(color);
+        mBadgeView.setTextColor(color);
     }
 
     /**
      * @param color 角标背景颜色
      */
     public void setBadgeColor(@ColorInt int color) {
-        mBadgeText.setBackgroundColor(color);
+        mBadgeView.setColor(color);
+    }
+
+    @Override
+    void applyBadge(@Nullable String badge) {
+        if (badge == null) {
+            clearBadge();
+        } else {
+            showBadge(badge);
+        }
     }
 
     /**
      * 清除角标
      */
     public void clearBadge() {
-        mBadgeText.setVisibility(GONE);
-        mBadgeText.clearHighLightMode();
+        // 使用 INVISIBLE 保留角标的位置，再次展示时不需要重新布局
+        mBadgeView.setVisibility(INVISIBLE);
+        NavigationMetrics.countBadgeUpdate();
+    }
+
+    /**
+     * @return 角标是否完整地画在角标 View 内
+     */
+    @VisibleForTesting
+    boolean isBadgeFullyVisible() {
+        return mBadgeView.isContentFullyVisible();
     }
 
     private final class ItemInnerLayout extends LinearLayout {
@@ -249,176 +378,63 @@ public class NormalItem extends NavigationItem {
 
     }
 
-    private class BadgeTextView extends AppCompatTextView {
-
-        private int backgroundColor = Color.RED;
-
-        private static final float RADIUS = 3.5f;
-        private int radius;
-        private int diffWH;
-
-        private boolean isHighLightMode;
-
-        public BadgeTextView(Context context) {
-            this(context, null);
-        }
-
-        public BadgeTextView(Context context, AttributeSet attrs) {
-            this(context, attrs, 0);
-        }
-
-        public BadgeTextView(Context context, AttributeSet attrs, int defStyleAttr) {
-            super(context, attrs, defStyleAttr);
-            setGravity(Gravity.CENTER);
-            float density = getContext().getResources().getDisplayMetrics().density;
-            radius = (int) (density * RADIUS);
-            int basePadding = (int) (radius * 1.5f);
-            float textHeight = getTextSize();
-            float textWidth = textHeight / 4;
-            diffWH = (int) (Math.abs(textHeight - textWidth) / 2);
-            int horizontalPadding = basePadding + diffWH;
-            setPadding(horizontalPadding, basePadding, horizontalPadding, basePadding);
-        }
-
-        @Override
-        protected void onTextChanged(CharSequence text, int start, int lengthBefore, int lengthAfter) {
-            super.onTextChanged(text, start, lengthBefore, lengthAfter);
-            /** 纯色小红点模式下若有文本需要从无变为有, 要归位view的大小.*/
-            String strText = text == null ? "" : text.toString().trim();
-            if (isHighLightMode && !strText.isEmpty()) {
-                ViewGroup.LayoutParams lp = getLayoutParams();
-                lp.height = ViewGroup.LayoutParams.WRAP_CONTENT;
-                lp.width = ViewGroup.LayoutParams.WRAP_CONTENT;
-                setLayoutParams(lp);
-                isHighLightMode = false;
-            }
-        }
-
-        @Override
-        protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-            super.onSizeChanged(w, h, oldw, oldh);
-            refreshBackgroundDrawable(w, h);
-        }
+    /**
+     * 角标，由 {@link BadgeRenderer} 直接绘制，LayoutParams 使用固定尺寸，
+     * 每种内容长度按该长度最宽的数字预留宽度，更新内容时只会重绘，
+     * 只有内容长度变化或者非数字内容超出预留宽度时才重新布局
+     */
+    private final class BadgeView extends View {
 
-        private void refreshBackgroundDrawable(int targetWidth, int targetHeight) {
-            if (targetWidth <= 0 || targetHeight <= 0) {
-                return;
-            }
-            CharSequence text = getText();
-            if (text == null) {
-                return;
-            }
-            if (text.length() == 1) {/**第一种背景是一个正圆形, 当文本为个位数字时 */
-                int max = Math.max(targetWidth, targetHeight);
-                final int diameter = max - (2 * radius);
-                OvalShape oval = new CircleShape(diameter);
-                ShapeDrawable circle = new ShapeDrawable(oval);
-                setLayerType(LAYER_TYPE_SOFTWARE, circle.getPaint());
-                circle.getPaint().setColor(backgroundColor);
-                setBackground(circle);
-            } else if (text.length() > 1) {/**第二种背景是上下两边为直线的椭圆, 当文本长度大于1时 */
-                SemiCircleRectDrawable sr = new SemiCircleRectDrawable();
-                setLayerType(LAYER_TYPE_SOFTWARE, sr.getPaint());
-                sr.getPaint().setColor(backgroundColor);
-                setBackground(sr);
-            } else {
-                /** 第三种情况就是text="", 即文本长度为0, 因为无任何文本, 则对当前的TextView背景不做任何更新,
-                 * 但是有时候我们需要一个无字的纯色小圆形,用来表达强调.这种情况因为要重新设置View的大小, 所以不在这里表现, 请使用另外一个方法setHighLightMode()来完成.
-                 */
-            }
+        private final BadgeRenderer mRenderer;
+        private String mContent = "";
+        /**
+         * 当前尺寸对应的内容长度，0 为小圆点
+         */
+        private int mSizeBucket = -1;
 
+        private BadgeView(Context context) {
+            super(context);
+            mRenderer = new BadgeRenderer(context);
         }
 
         /**
-         * 明确的展现一个无任何文本的红色圆点,
-         * 主要是通过设置文本setText("")触发onTextChanged(), 再连锁触发onSizeChanged()最后更新了背景.
+         * @param content 角标内容，空字符串时为小圆点
          */
-        public void setHighLightMode() {
-            isHighLightMode = true;
+        private void setContent(@NonNull String content) {
+            int bucket = content.length();
+            int width = mRenderer.getReservedWidth(content);
             ViewGroup.LayoutParams params = getLayoutParams();
-            params.width = dp2px(8);
-            params.height = params.width;
-            setLayoutParams(params);
-            ShapeDrawable drawable = new ShapeDrawable(new OvalShape());
-            setLayerType(LAYER_TYPE_SOFTWARE, drawable.getPaint());
-            drawable.getPaint().setColor(backgroundColor);
-            drawable.getPaint().setAntiAlias(true);
-            setBackground(drawable);
-            setText("");
+            if (bucket != mSizeBucket || width > params.width) {
+                mSizeBucket = bucket;
+                params.width = width;
+                params.height = mRenderer.getHeight(content);
+                setLayoutParams(params);
+            }
+            if (!mContent.equals(content)) {
+                mContent = content;
+                invalidate();
+            }
         }
 
-        public void clearHighLightMode() {
-            isHighLightMode = false;
+        private void setColor(@ColorInt int color) {
+            mRenderer.setColor(color);
+            invalidate();
         }
 
-        public void setBackgroundColor(int color) {
-            backgroundColor = color;
-            refreshBackgroundDrawable(getWidth(), getHeight());
+        private void setTextColor(@ColorInt int color) {
+            mRenderer.setTextColor(color);
+            invalidate();
         }
 
-        private class CircleShape extends OvalShape {
-            private int mCircleDiameter;
-
-            CircleShape(int circleDiameter) {
-                super();
-                mCircleDiameter = circleDiameter;
-            }
-
-            @Override
-            public void draw(Canvas canvas, Paint paint) {
-                final int viewWidth = BadgeTextView.this.getWidth();
-                final int viewHeight = BadgeTextView.this.getHeight();
-                canvas.drawCircle(viewWidth >> 1, viewHeight >> 1, (float) (mCircleDiameter * 0.4), paint);
-            }
+        private boolean isContentFullyVisible() {
+            return mRenderer.getWidth(mContent) <= getWidth() && mRenderer.getHeight(mContent) <= getHeight();
         }
 
-        private class SemiCircleRectDrawable extends Drawable {
-            private final Paint mPaint;
-            private RectF rectF;
-
-            Paint getPaint() {
-                return mPaint;
-            }
-
-            SemiCircleRectDrawable() {
-                mPaint = new Paint();
-                mPaint.setAntiAlias(true);
-            }
-
-            @Override
-            public void setBounds(int left, int top, int right, int bottom) {
-                super.setBounds(left, top, right, bottom);
-                if (rectF == null) {
-                    rectF = new RectF(left + diffWH, top + radius + 4, right - diffWH, bottom - radius - 4);
-                } else {
-                    rectF.set(left + diffWH, top + radius + 4, right - diffWH, bottom - radius - 4);
-                }
-            }
-
-            @Override
-            public void draw(Canvas canvas) {
-                float R = (float) (rectF.bottom * 0.4);
-                if (rectF.right < rectF.bottom) {
-                    R = (float) (rectF.right * 0.4);
-                }
-                canvas.drawRoundRect(rectF, R, R, mPaint);
-            }
-
-            @Override
-            public void setAlpha(int alpha) {
-                mPaint.setAlpha(alpha);
-            }
-
-            @Override
-            public void setColorFilter(ColorFilter colorFilter) {
-                mPaint.setColorFilter(colorFilter);
-            }
-
-            @Override
-            public int getOpacity() {
-                return PixelFormat.TRANSPARENT;
-            }
+        @Override
+        protected void onDraw(Canvas canvas) {
+            mRenderer.draw(canvas, mContent,
+                    (getWidth() - mRenderer.getWidth(mContent)) / 2f,
+                    (getHeight() - mRenderer.getHeight(mContent)) / 2f);
         }
-
     }
 }
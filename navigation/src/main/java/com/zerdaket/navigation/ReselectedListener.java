@@ -0,0 +1,8 @@
+package com.zerdaket.navigation;
+
+/**
+ * 点击已经选中的 Item 时回调
+ */
+public interface ReselectedListener {
+    void onReselected(NavigationItem item);
+}
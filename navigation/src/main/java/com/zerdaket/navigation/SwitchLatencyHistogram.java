@@ -0,0 +1,116 @@
+package com.zerdaket.navigation;
+
+/**
+ * 记录切换耗时的直方图，桶按 2 的幂分组，每组再均分为 8 个桶，相对误差不超过 12.5% 。
+ * 桶在创建时分配，记录和查询都不会再分配内存。只能在主线程使用。
+ */
+public final class SwitchLatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * 最大记录 2^28 微秒（约 4.5 分钟），更大的值记入最后一个桶
+     */
+    private static final int MAX_MAGNITUDE = 27;
+    private static final int BUCKET_COUNT = (MAX_MAGNITUDE - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    private final int[] mCounts = new int[BUCKET_COUNT];
+    private long mCount;
+    private long mMaxNanos;
+
+    /**
+     * @param latencyNanos 切换耗时，单位纳秒
+     */
+    public void record(long latencyNanos) {
+        if (latencyNanos < 0) {
+            return;
+        }
+        mCounts[bucketIndex(latencyNanos / 1000)]++;
+        mCount++;
+        if (latencyNanos > mMaxNanos) {
+            mMaxNanos = latencyNanos;
+        }
+    }
+
+    /**
+     * @return 记录的次数
+     */
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return 记录的最大耗时，单位纳秒
+     */
+    public long getMaxNanos() {
+        return mMaxNanos;
+    }
+
+    /**
+     * @param percentile 百分位，范围 0 ~ 100
+     * @return 对应百分位的耗时上限，单位纳秒，没有记录时为 0
+     */
+    public long getPercentileNanos(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100 * mCount);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mCounts[i];
+            if (seen >= target) {
+                return Math.min(bucketUpperBound(i) * 1000 + 999, mMaxNanos);
+            }
+        }
+        return mMaxNanos;
+    }
+
+    public long getP50Nanos() {
+        return getPercentileNanos(50);
+    }
+
+    public long getP90Nanos() {
+        return getPercentileNanos(90);
+    }
+
+    public long getP99Nanos() {
+        return getPercentileNanos(99);
+    }
+
+    /**
+     * 清除所有记录
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mCounts[i] = 0;
+        }
+        mCount = 0;
+        mMaxNanos = 0;
+    }
+
+    private static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKET_COUNT) {
+            return (int) micros;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (micros >> shift) - SUB_BUCKET_COUNT;
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        int subBucket = index % SUB_BUCKET_COUNT;
+        long lower = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
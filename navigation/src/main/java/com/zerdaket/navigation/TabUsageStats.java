@@ -0,0 +1,168 @@
+package com.zerdaket.navigation;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+import androidx.collection.SimpleArrayMap;
+import androidx.core.util.AtomicFile;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 记录每个 Tab 被选中的次数，保存在应用私有目录下的小文件中。
+ * Tab 以 Fragment 的 Tag 区分，Item 的 Id 在不同版本间可能会变化。
+ * 文件只在后台线程依次读写，次数只在主线程访问。
+ */
+final class TabUsageStats {
+
+    private static final String FILE_NAME = "navigation_tab_usage";
+    private static final int VERSION = 1;
+
+    private final Context mContext;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final SimpleArrayMap<String, Integer> mCounts = new SimpleArrayMap<>();
+    private boolean mLoaded;
+    private boolean mDirty;
+    private AtomicFile mFile;
+
+    TabUsageStats(@NonNull Context context) {
+        mContext = context.getApplicationContext();
+    }
+
+    boolean isLoaded() {
+        return mLoaded;
+    }
+
+    boolean isDirty() {
+        return mDirty;
+    }
+
+    void increment(String tag) {
+        if (tag == null) {
+            return;
+        }
+        mCounts.put(tag, getCount(tag) + 1);
+        mDirty = true;
+    }
+
+    int getCount(String tag) {
+        Integer count = mCounts.get(tag);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 在后台读取文件中的记录，回到主线程后与加载前已经产生的次数合并
+     *
+     * @param onLoaded 合并完成后在主线程执行
+     */
+    void load(@NonNull final Runnable onLoaded) {
+        AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final SimpleArrayMap<String, Integer> counts = read(getFile());
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        for (int i = 0, size = counts.size(); i < size; i++) {
+                            String tag = counts.keyAt(i);
+                            mCounts.put(tag, getCount(tag) + counts.valueAt(i));
+                        }
+                        mLoaded = true;
+                        onLoaded.run();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 复制当前的次数，在后台写入文件
+     */
+    void save() {
+        final SimpleArrayMap<String, Integer> counts = new SimpleArrayMap<>(mCounts);
+        mDirty = false;
+        AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(getFile(), counts);
+            }
+        });
+    }
+
+    /**
+     * 文件只在 {@link AsyncTask#SERIAL_EXECUTOR} 中访问，第一次访问时才确定路径
+     */
+    @WorkerThread
+    private AtomicFile getFile() {
+        if (mFile == null) {
+            mFile = new AtomicFile(new File(mContext.getFilesDir(), FILE_NAME));
+        }
+        return mFile;
+    }
+
+    @WorkerThread
+    private static SimpleArrayMap<String, Integer> read(AtomicFile file) {
+        SimpleArrayMap<String, Integer> counts = new SimpleArrayMap<>();
+        DataInputStream in = null;
+        try {
+            // openRead 会先恢复上次中断写入留下的备份，文件不存在时抛出 FileNotFoundException
+            in = new DataInputStream(new BufferedInputStream(file.openRead()));
+            if (in.readInt() != VERSION) {
+                return counts;
+            }
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                counts.put(in.readUTF(), in.readInt());
+            }
+        } catch (IOException ignored) {
+            // 记录只用于预热，读取失败时保留已读取的部分
+        } finally {
+            closeQuietly(in);
+        }
+        return counts;
+    }
+
+    @WorkerThread
+    private static void write(AtomicFile file, SimpleArrayMap<String, Integer> counts) {
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(VERSION);
+            int size = counts.size();
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeUTF(counts.keyAt(i));
+                out.writeInt(counts.valueAt(i));
+            }
+            out.flush();
+            // finishWrite 会同步并关闭 stream，写入中断时保留原来的文件
+            file.finishWrite(stream);
+        } catch (IOException ignored) {
+            // 记录只用于预热，写入失败时下次启动按已有的记录预热
+            if (stream != null) {
+                file.failWrite(stream);
+            }
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.zerdaket.navigation;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.appcompat.content.res.AppCompatResources;
+import androidx.collection.LruCache;
+import androidx.core.graphics.drawable.DrawableCompat;
+
+import java.util.Arrays;
+
+/**
+ * 进程内按图标资源、屏幕密度、夜间模式和着色缓存着色后的 {@link Drawable.ConstantState} ，
+ * 相同的图标只 mutate 和着色一次，之后通过 newDrawable 得到共享同一份状态的 Drawable 。
+ * <p>
+ * ColorStateList 没有实现 equals ，着色按 Item 会用到的几种状态下的颜色比较。
+ * 查找时复用同一个 Key ，只有放入缓存时才复制，命中时不分配内存。
+ */
+final class TintedIconCache {
+
+    private static final int MAX_SIZE = 64;
+
+    /**
+     * 比较着色时取色的状态，与 Item 的选中、按下状态对应
+     */
+    private static final int[][] TINT_STATES = new int[][]{
+            new int[]{android.R.attr.state_enabled},
+            new int[]{android.R.attr.state_enabled, android.R.attr.state_selected},
+            new int[]{android.R.attr.state_enabled, android.R.attr.state_pressed},
+            new int[]{android.R.attr.state_enabled, android.R.attr.state_selected, android.R.attr.state_pressed},
+            new int[]{-android.R.attr.state_enabled}
+    };
+
+    private static final LruCache<Key, Drawable.ConstantState> sCache = new LruCache<>(MAX_SIZE);
+    /**
+     * 只在持有类锁时使用
+     */
+    private static final Key sLookupKey = new Key();
+    private static int sSharedCount;
+    private static int sCreatedCount;
+    private static int sUncachedCount;
+
+    private TintedIconCache() {
+    }
+
+    /**
+     * @param iconRes 图标资源，为 0 时返回 null
+     * @param tint    着色，null 时清除着色
+     * @return 与之前相同参数得到的 Drawable 共享 ConstantState 的新 Drawable
+     */
+    @Nullable
+    static Drawable get(Context context, @DrawableRes int iconRes, @Nullable ColorStateList tint) {
+        if (iconRes == 0) {
+            return null;
+        }
+        Resources resources = context.getResources();
+        int nightMode = resources.getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        Drawable.ConstantState state;
+        Key key = null;
+        synchronized (TintedIconCache.class) {
+            sLookupKey.set(iconRes, resources.getDisplayMetrics().densityDpi, nightMode, tint);
+            state = sCache.get(sLookupKey);
+            if (state != null) {
+                sSharedCount++;
+            } else {
+                key = sLookupKey.copy();
+            }
+        }
+        if (state != null) {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                return state.newDrawable(resources, context.getTheme());
+            }
+            return state.newDrawable(resources);
+        }
+
+        Drawable drawable = tint(AppCompatResources.getDrawable(context, iconRes), tint);
+        state = drawable == null ? null : drawable.getConstantState();
+        synchronized (TintedIconCache.class) {
+            if (state == null) {
+                sUncachedCount++;
+            } else {
+                sCreatedCount++;
+                sCache.put(key, state);
+            }
+        }
+        return drawable;
+    }
+
+    /**
+     * 给没有资源 Id 的图标着色。调用方需要保存原图，每次都对原图着色，
+     * 不能对上一次的结果再次着色，否则低版本上会一层层包装
+     *
+     * @param source 原图
+     * @param tint   着色
+     */
+    @Nullable
+    static Drawable tint(@Nullable Drawable source, @Nullable ColorStateList tint) {
+        if (source == null) {
+            return null;
+        }
+        // 对同一个原图重复 mutate 返回自身
+        Drawable drawable = DrawableCompat.wrap(source.mutate());
+        DrawableCompat.setTintList(drawable, tint);
+        return drawable;
+    }
+
+    /**
+     * @return 从缓存共享 ConstantState 的次数
+     */
+    @VisibleForTesting
+    static synchronized int getSharedCount() {
+        return sSharedCount;
+    }
+
+    /**
+     * @return 新着色并放入缓存的次数
+     */
+    @VisibleForTesting
+    static synchronized int getCreatedCount() {
+        return sCreatedCount;
+    }
+
+    /**
+     * @return 没有 ConstantState 无法缓存的次数
+     */
+    @VisibleForTesting
+    static synchronized int getUncachedCount() {
+        return sUncachedCount;
+    }
+
+    @VisibleForTesting
+    static synchronized int size() {
+        return sCache.size();
+    }
+
+    @VisibleForTesting
+    static synchronized void clear() {
+        sCache.evictAll();
+        sSharedCount = 0;
+        sCreatedCount = 0;
+        sUncachedCount = 0;
+    }
+
+    private static final class Key {
+
+        int iconRes;
+        int densityDpi;
+        int nightMode;
+        boolean tinted;
+        final int[] colors = new int[TINT_STATES.length + 1];
+        private int mHashCode;
+
+        void set(int iconRes, int densityDpi, int nightMode, @Nullable ColorStateList tint) {
+            this.iconRes = iconRes;
+            this.densityDpi = densityDpi;
+            this.nightMode = nightMode;
+            tinted = tint != null;
+            if (tint == null) {
+                Arrays.fill(colors, 0);
+            } else {
+                int defaultColor = tint.getDefaultColor();
+                colors[0] = defaultColor;
+                for (int i = 0; i < TINT_STATES.length; i++) {
+                    colors[i + 1] = tint.getColorForState(TINT_STATES[i], defaultColor);
+                }
+            }
+            int hashCode = 31 * iconRes + densityDpi;
+            hashCode = 31 * hashCode + nightMode;
+            hashCode = 31 * hashCode + (tinted ? Arrays.hashCode(colors) : 0);
+            mHashCode = hashCode;
+        }
+
+        Key copy() {
+            Key key = new Key();
+            key.iconRes = iconRes;
+            key.densityDpi = densityDpi;
+            key.nightMode = nightMode;
+            key.tinted = tinted;
+            System.arraycopy(colors, 0, key.colors, 0, colors.length);
+            key.mHashCode = mHashCode;
+            return key;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return iconRes == other.iconRes && densityDpi == other.densityDpi
+                    && nightMode == other.nightMode && tinted == other.tinted
+                    && Arrays.equals(colors, other.colors);
+        }
+
+        @Override
+        public int hashCode() {
+            return mHashCode;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.zerdaket.navigation;
+
+import android.app.Activity;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 切换选中 Item 时的布局次数和内存分配
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NavigationBarPerfTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 168;
+    private static final int ITERATIONS = 200;
+    private static final int[] ICONS = new int[]{
+            android.R.drawable.ic_menu_view,
+            android.R.drawable.ic_menu_gallery,
+            android.R.drawable.ic_menu_send,
+            android.R.drawable.ic_menu_search,
+            android.R.drawable.ic_menu_more
+    };
+
+    private static final int BADGE_UPDATES_PER_FRAME = 10;
+
+    private Activity mActivity;
+    private NavigationBar mBar;
+    private int[] mIds;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mBar = new NavigationBar(mActivity);
+        mIds = new int[ICONS.length];
+        List<NavigationItemSpec> specs = new ArrayList<>();
+        for (int i = 0; i < ICONS.length; i++) {
+            mIds[i] = View.generateViewId();
+            specs.add(new NavigationItemSpec(mIds[i], "Tab " + i, ICONS[i]));
+        }
+        mBar.setItems(specs);
+        mActivity.setContentView(mBar);
+        frame();
+    }
+
+    @Test
+    public void selectOnlyRedraws() {
+        mBar.select(mIds[0]);
+        frame();
+        resetLayoutCounts();
+
+        for (int i = 1; i <= ITERATIONS; i++) {
+            mBar.select(mIds[i % mIds.length]);
+            frame();
+        }
+
+        PerfRecorder.report("NavigationBar.select", "layoutRequests", getLayoutRequestCount());
+        PerfRecorder.report("NavigationBar.select", "layoutPasses", getLayoutPassCount());
+        assertEquals(0, getLayoutRequestCount());
+        assertEquals(0, getLayoutPassCount());
+
+        final int[] index = new int[1];
+        long bytes = PerfRecorder.allocationsPerOp(new Runnable() {
+            @Override
+            public void run() {
+                mBar.select(mIds[index[0]++ % mIds.length]);
+            }
+        }, ITERATIONS);
+        PerfRecorder.report("NavigationBar.select", "bytesPerOp", bytes);
+    }
+
+    @Test
+    public void setItemsWithSameSpecsDoesNotRelayout() {
+        List<NavigationItemSpec> specs = new ArrayList<>();
+        for (int i = 0; i < ICONS.length; i++) {
+            specs.add(new NavigationItemSpec(mIds[i], "Tab " + i, ICONS[i]));
+        }
+        resetLayoutCounts();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            mBar.setItems(specs);
+            frame();
+        }
+
+        PerfRecorder.report("NavigationBar.setItems", "layoutRequests", getLayoutRequestCount());
+        PerfRecorder.report("NavigationBar.setItems", "layoutPasses", getLayoutPassCount());
+        assertEquals(0, getLayoutRequestCount());
+    }
+
+    @Test
+    public void readdingSelectedItemDoesNotDispatchSelection() {
+        mBar.select(mIds[0]);
+        frame();
+        List<NavigationItemSpec> specs = new ArrayList<>();
+        for (int i = 0; i < ICONS.length; i++) {
+            specs.add(new NavigationItemSpec(mIds[i], "Tab " + i, ICONS[i]));
+        }
+        List<NavigationItemSpec> withoutSelected = new ArrayList<>(specs.subList(1, specs.size()));
+
+        NavigationMetrics.reset();
+        NavigationMetrics.setEnabled(true);
+        try {
+            for (int i = 0; i < ITERATIONS; i++) {
+                mBar.setItems(withoutSelected);
+                mBar.setItems(specs);
+                frame();
+            }
+
+            int dispatches = NavigationMetrics.getSelectionDispatchCount();
+            PerfRecorder.report("NavigationBar.setItems", "selectionDispatches", dispatches);
+            // 选中的 Id 没有变化，重新添加的 Item 只恢复选中状态
+            assertEquals(0, dispatches);
+            assertEquals(mIds[0], mBar.getSelectedNavigationItemId());
+            assertTrue(mBar.findViewById(mIds[0]).isSelected());
+        } finally {
+            NavigationMetrics.setEnabled(false);
+            NavigationMetrics.reset();
+        }
+    }
+
+    @Test
+    public void setBadgeCountAppliesOncePerFrame() {
+        NavigationMetrics.reset();
+        NavigationMetrics.setEnabled(true);
+        try {
+            int frames = ITERATIONS / BADGE_UPDATES_PER_FRAME;
+            for (int frame = 0; frame < frames; frame++) {
+                for (int i = 1; i <= BADGE_UPDATES_PER_FRAME; i++) {
+                    for (int id : mIds) {
+                        mBar.setBadgeCount(id, frame * BADGE_UPDATES_PER_FRAME + i);
+                    }
+                }
+                ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+            }
+
+            int updates = NavigationMetrics.getBadgeUpdateCount();
+            PerfRecorder.report("NavigationBar.setBadgeCount", "badgeUpdates", updates);
+            // 每帧每个 Item 只应用最后一个数字
+            assertEquals(frames * mIds.length, updates);
+        } finally {
+            NavigationMetrics.setEnabled(false);
+            NavigationMetrics.reset();
+        }
+    }
+
+    @Test
+    public void inflateMenuParsesOnce() {
+        MenuSpecCache.clear();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            new NavigationBar(mActivity).inflateMenu(R.menu.navigation_test_tabs);
+        }
+
+        PerfRecorder.report("NavigationBar.inflateMenu", "parses", MenuSpecCache.getMissCount());
+        PerfRecorder.report("NavigationBar.inflateMenu", "cacheHits", MenuSpecCache.getHitCount());
+        assertEquals(1, MenuSpecCache.getMissCount());
+        assertEquals(ITERATIONS - 1, MenuSpecCache.getHitCount());
+    }
+
+    /**
+     * 与 ViewRootImpl 一样，只有请求了布局时才测量和布局
+     */
+    private void frame() {
+        if (mBar.isLayoutRequested()) {
+            mBar.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+            mBar.layout(0, 0, WIDTH, HEIGHT);
+        }
+    }
+
+    private void resetLayoutCounts() {
+        for (int i = 0; i < mBar.getChildCount(); i++) {
+            ((NavigationItem) mBar.getChildAt(i)).resetLayoutCounts();
+        }
+    }
+
+    private int getLayoutRequestCount() {
+        int count = 0;
+        for (int i = 0; i < mBar.getChildCount(); i++) {
+            count += ((NavigationItem) mBar.getChildAt(i)).getLayoutRequestCount();
+        }
+        return count;
+    }
+
+    private int getLayoutPassCount() {
+        int count = 0;
+        for (int i = 0; i < mBar.getChildCount(); i++) {
+            count += ((NavigationItem) mBar.getChildAt(i)).getLayoutPassCount();
+        }
+        return count;
+    }
+}
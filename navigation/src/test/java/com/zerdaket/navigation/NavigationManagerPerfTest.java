@@ -0,0 +1,184 @@
+package com.zerdaket.navigation;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 切换 Tab 时提交的事务数量、创建的 Fragment 数量和内存分配
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NavigationManagerPerfTest {
+
+    private static final int TAB_COUNT = 3;
+    private static final int ITERATIONS = 90;
+    private static final int STACK_DEPTH = 10;
+    private static final int MAX_LIVE_DEPTH = 2;
+
+    private FragmentActivity mActivity;
+    private NavigationBar mBar;
+    private NavigationManager mManager;
+    private int[] mIds;
+    private int mCreatedCount;
+    private int mSwitchCount;
+    private int mTransactionCount;
+    private int mMaxTransactionsPerSwitch;
+
+    @Before
+    public void setUp() {
+        NavigationMetrics.reset();
+        NavigationMetrics.setEnabled(true);
+        mActivity = Robolectric.buildActivity(FragmentActivity.class).setup().get();
+        LinearLayout root = new LinearLayout(mActivity);
+        root.setOrientation(LinearLayout.VERTICAL);
+        FrameLayout container = new FrameLayout(mActivity);
+        container.setId(View.generateViewId());
+        root.addView(container, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, 0, 1));
+        mBar = new NavigationBar(mActivity);
+        mIds = new int[TAB_COUNT];
+        List<NavigationItemSpec> specs = new ArrayList<>();
+        for (int i = 0; i < TAB_COUNT; i++) {
+            mIds[i] = View.generateViewId();
+            specs.add(new NavigationItemSpec(mIds[i], "Tab " + i, 0));
+        }
+        mBar.setItems(specs);
+        root.addView(mBar, new LinearLayout.LayoutParams(LinearLayout.LayoutParams.MATCH_PARENT, 168));
+        mActivity.setContentView(root);
+
+        FragmentManager fragmentManager = mActivity.getSupportFragmentManager();
+        fragmentManager.registerFragmentLifecycleCallbacks(new FragmentManager.FragmentLifecycleCallbacks() {
+            @Override
+            public void onFragmentCreated(@NonNull FragmentManager fm, @NonNull Fragment f, @Nullable Bundle savedInstanceState) {
+                mCreatedCount++;
+            }
+        }, false);
+
+        mManager = new NavigationManager(mBar, fragmentManager, container.getId());
+        mManager.setCommitMode(NavigationManager.COMMIT_NOW);
+        mManager.setOnFragmentSwitchListener(new NavigationManager.OnFragmentSwitchListener() {
+            @Override
+            public void onFragmentSwitched(int previousId, int selectedId, int transactionCount) {
+                mSwitchCount++;
+                mTransactionCount += transactionCount;
+                mMaxTransactionsPerSwitch = Math.max(mMaxTransactionsPerSwitch, transactionCount);
+            }
+        });
+        for (int i = 0; i < TAB_COUNT; i++) {
+            mManager.bindFragment(mIds[i], TabFragment.class, "tab" + i);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        NavigationMetrics.setEnabled(false);
+        NavigationMetrics.reset();
+    }
+
+    @Test
+    public void switchCommitsOneTransactionAndCreatesEachTabOnce() {
+        for (int i = 0; i < ITERATIONS; i++) {
+            mBar.select(mIds[i % TAB_COUNT]);
+        }
+
+        PerfRecorder.report("NavigationManager.switch", "switches", mSwitchCount);
+        PerfRecorder.report("NavigationManager.switch", "transactions", mTransactionCount);
+        PerfRecorder.report("NavigationManager.switch", "fragmentsCreated", mCreatedCount);
+        PerfRecorder.report("NavigationManager.switch", "selectionDispatches", NavigationMetrics.getSelectionDispatchCount());
+        assertEquals(TAB_COUNT, mCreatedCount);
+        assertTrue("at most one transaction per switch", mMaxTransactionsPerSwitch <= 1);
+        assertTrue(mTransactionCount <= mSwitchCount);
+        assertEquals(mTransactionCount, NavigationMetrics.getTransactionCount());
+        assertEquals(TAB_COUNT, NavigationMetrics.getFragmentCreationCount());
+
+        final int[] index = new int[1];
+        long bytes = PerfRecorder.allocationsPerOp(new Runnable() {
+            @Override
+            public void run() {
+                mBar.select(mIds[index[0]++ % TAB_COUNT]);
+            }
+        }, ITERATIONS);
+        PerfRecorder.report("NavigationManager.switch", "bytesPerOp", bytes);
+        assertEquals(TAB_COUNT, mCreatedCount);
+    }
+
+    @Test
+    public void reselectDoesNotCommit() {
+        mBar.select(mIds[0]);
+        int transactions = mTransactionCount;
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            mBar.select(mIds[0]);
+        }
+
+        PerfRecorder.report("NavigationManager.reselect", "transactions", mTransactionCount - transactions);
+        assertEquals(transactions, mTransactionCount);
+    }
+
+    @Test
+    public void deepBackStacksKeepLiveFragmentsBounded() {
+        mManager.setMaxBackStackDepth(MAX_LIVE_DEPTH);
+        for (int id : mIds) {
+            mBar.select(id);
+            for (int i = 0; i < STACK_DEPTH; i++) {
+                mManager.pushFragment(new TabFragment());
+            }
+        }
+
+        int live = mActivity.getSupportFragmentManager().getFragments().size();
+        PerfRecorder.report("NavigationManager.backStack", "liveFragments", live);
+        // 最近选中的两个 Tab 各保留 MAX_LIVE_DEPTH 层，其他 Tab 只保留栈顶
+        assertTrue(live <= 2 * MAX_LIVE_DEPTH + TAB_COUNT - 2);
+        for (int id : mIds) {
+            assertEquals(STACK_DEPTH, mManager.getBackStackDepth(id));
+        }
+
+        mBar.select(mIds[0]);
+        int created = mCreatedCount;
+        for (int i = 0; i < STACK_DEPTH; i++) {
+            mActivity.onBackPressed();
+        }
+
+        PerfRecorder.report("NavigationManager.backStack", "fragmentsRestored", mCreatedCount - created);
+        assertEquals(0, mManager.getBackStackDepth(mIds[0]));
+        assertEquals(STACK_DEPTH, mManager.getBackStackDepth(mIds[1]));
+        Fragment root = mManager.getFragment(mIds[0]);
+        assertSame(root, mManager.getTopFragment(mIds[0]));
+        assertTrue(root.isAdded() && !root.isHidden());
+        assertFalse(mManager.popBackStack());
+    }
+
+    public static class TabFragment extends Fragment {
+
+        @Override
+        public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
+                                 @Nullable Bundle savedInstanceState) {
+            Context context = inflater.getContext();
+            return new View(context);
+        }
+    }
+}
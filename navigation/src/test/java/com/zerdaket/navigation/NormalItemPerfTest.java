@@ -0,0 +1,222 @@
+package com.zerdaket.navigation;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.core.content.res.ResourcesCompat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 更新角标和着色时的布局次数、内存分配和图标共享
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NormalItemPerfTest {
+
+    private static final int WIDTH = 216;
+    private static final int HEIGHT = 168;
+    private static final int ITERATIONS = 200;
+    private static final int BADGE_COUNTS = 120;
+    private static final String[] SINGLE_DIGITS = new String[]{"1", "2", "3", "4", "5", "6", "7", "8", "9"};
+    private static final String[] MIXED_BADGES = new String[]{"1", "8", "11", "88", "99+", "W", "1", "WW", "11", "new", ""};
+
+    private Activity mActivity;
+    private NormalItem mItem;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        mItem = new NormalItem(mActivity, new NavigationItemSpec(View.generateViewId(), "Home",
+                android.R.drawable.ic_menu_view));
+        mActivity.setContentView(mItem, new ViewGroup.LayoutParams(WIDTH, HEIGHT));
+        frame();
+    }
+
+    @Test
+    public void showBadgeWithSameLengthOnlyRedraws() {
+        mItem.showBadge("1");
+        frame();
+        mItem.resetLayoutCounts();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            mItem.showBadge(SINGLE_DIGITS[i % SINGLE_DIGITS.length]);
+            frame();
+            assertTrue(mItem.isBadgeFullyVisible());
+        }
+
+        PerfRecorder.report("NormalItem.showBadge", "layoutRequests", mItem.getLayoutRequestCount());
+        PerfRecorder.report("NormalItem.showBadge", "layoutPasses", mItem.getLayoutPassCount());
+        assertEquals(0, mItem.getLayoutRequestCount());
+        assertEquals(0, mItem.getLayoutPassCount());
+
+        final int[] index = new int[1];
+        long bytes = PerfRecorder.allocationsPerOp(new Runnable() {
+            @Override
+            public void run() {
+                mItem.showBadge(SINGLE_DIGITS[index[0]++ % SINGLE_DIGITS.length]);
+            }
+        }, ITERATIONS);
+        PerfRecorder.report("NormalItem.showBadge", "bytesPerOp", bytes);
+    }
+
+    @Test
+    public void badgeFitsAfterContentChanges() {
+        for (String badge : MIXED_BADGES) {
+            mItem.showBadge(badge);
+            frame();
+            assertTrue("badge \"" + badge + "\" is clipped", mItem.isBadgeFullyVisible());
+        }
+    }
+
+    @Test
+    public void setColorTintSharesTintedIcons() {
+        final ColorStateList defaultTint = ResourcesCompat.getColorStateList(mActivity.getResources(),
+                R.color.ui_selector_navi_item, mActivity.getTheme());
+        final ColorStateList blueTint = ColorStateList.valueOf(Color.BLUE);
+        TintedIconCache.clear();
+        mItem.resetLayoutCounts();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            mItem.setColorTint(i % 2 == 0 ? defaultTint : blueTint, true);
+            frame();
+        }
+
+        PerfRecorder.report("NormalItem.setColorTint", "layoutRequests", mItem.getLayoutRequestCount());
+        PerfRecorder.report("NormalItem.setColorTint", "layoutPasses", mItem.getLayoutPassCount());
+        PerfRecorder.report("NormalItem.setColorTint", "iconsCreated", TintedIconCache.getCreatedCount());
+        PerfRecorder.report("NormalItem.setColorTint", "iconsShared", TintedIconCache.getSharedCount());
+        // 两种着色各着色一次，之后都从缓存共享
+        assertEquals(2, TintedIconCache.getCreatedCount());
+        assertEquals(ITERATIONS - 2, TintedIconCache.getSharedCount());
+        assertEquals(2, TintedIconCache.size());
+
+        final int[] index = new int[1];
+        long bytes = PerfRecorder.allocationsPerOp(new Runnable() {
+            @Override
+            public void run() {
+                mItem.setColorTint(index[0]++ % 2 == 0 ? defaultTint : blueTint, true);
+            }
+        }, ITERATIONS);
+        PerfRecorder.report("NormalItem.setColorTint", "bytesPerOp", bytes);
+    }
+
+    @Test
+    public void tintedIconsAreKeyedByNightMode() {
+        ColorStateList tint = ColorStateList.valueOf(Color.BLUE);
+        Configuration night = new Configuration(mActivity.getResources().getConfiguration());
+        night.uiMode = (night.uiMode & ~Configuration.UI_MODE_NIGHT_MASK) | Configuration.UI_MODE_NIGHT_YES;
+        Context nightContext = mActivity.createConfigurationContext(night);
+        TintedIconCache.clear();
+
+        TintedIconCache.get(mActivity, android.R.drawable.ic_menu_view, tint);
+        TintedIconCache.get(mActivity, android.R.drawable.ic_menu_view, tint);
+        TintedIconCache.get(nightContext, android.R.drawable.ic_menu_view, tint);
+
+        // 夜间模式下主题属性可能解析成不同的图标，不与日间共享
+        assertEquals(2, TintedIconCache.getCreatedCount());
+        assertEquals(1, TintedIconCache.getSharedCount());
+    }
+
+    @Test
+    public void iconAtlasSkipsTintsWithDisabledColor() {
+        int[][] states = new int[][]{
+                new int[]{android.R.attr.state_selected},
+                new int[]{android.R.attr.state_pressed},
+                new int[]{}
+        };
+        ColorStateList tint = new ColorStateList(states, new int[]{Color.BLUE, Color.BLUE, Color.GRAY});
+        ColorStateList disabledTint = new ColorStateList(new int[][]{
+                new int[]{-android.R.attr.state_enabled},
+                new int[]{android.R.attr.state_selected},
+                new int[]{android.R.attr.state_pressed},
+                new int[]{}
+        }, new int[]{Color.LTGRAY, Color.BLUE, Color.BLUE, Color.GRAY});
+        int[] icons = new int[]{android.R.drawable.ic_menu_view};
+        IconAtlas.clear();
+
+        IconAtlas.Key key = IconAtlas.createKey(mActivity, icons, tint);
+        IconAtlas atlas = IconAtlas.obtain(mActivity, key);
+
+        assertTrue(atlas.canDraw(android.R.drawable.ic_menu_view, tint));
+        // 图集没有不可用状态的颜色，交给 TintedIconCache 着色
+        assertFalse(atlas.canDraw(android.R.drawable.ic_menu_view, disabledTint));
+        assertNull(IconAtlas.createKey(mActivity, icons, disabledTint));
+    }
+
+    @Test
+    public void badgeCountsMeasureOnlyOnFirstPass() {
+        final BadgeRenderer renderer = new BadgeRenderer(mActivity);
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        drawCounts(renderer, canvas);
+        int measured = renderer.getMeasureCount();
+
+        for (int i = 0; i < 3; i++) {
+            drawCounts(renderer, canvas);
+        }
+
+        PerfRecorder.report("BadgeRenderer.draw", "firstPassMeasures", measured);
+        PerfRecorder.report("BadgeRenderer.draw", "laterMeasures", renderer.getMeasureCount() - measured);
+        // 数字角标超过 16 种时也不会反复测量
+        assertEquals(measured, renderer.getMeasureCount());
+
+        final int[] count = new int[1];
+        long bytes = PerfRecorder.allocationsPerOp(new Runnable() {
+            @Override
+            public void run() {
+                count[0] = count[0] % BADGE_COUNTS + 1;
+                renderer.draw(canvas, BadgeCounts.format(count[0]), 0, 0);
+            }
+        }, ITERATIONS);
+        PerfRecorder.report("BadgeRenderer.draw", "bytesPerOp", bytes);
+        assertEquals(measured, renderer.getMeasureCount());
+    }
+
+    @Test
+    public void drawPassesAreCountedWithoutBackground() {
+        Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+        View parent = (View) mItem.getParent();
+        NavigationMetrics.reset();
+        NavigationMetrics.setEnabled(true);
+        try {
+            for (int i = 0; i < 3; i++) {
+                // 与系统一样从父 View 绘制，没有背景的 Item 只会调用 dispatchDraw
+                parent.draw(canvas);
+            }
+            PerfRecorder.report("NormalItem.draw", "drawCount", NavigationMetrics.getDrawCount(mItem.getId()));
+            assertEquals(3, NavigationMetrics.getDrawCount(mItem.getId()));
+        } finally {
+            NavigationMetrics.setEnabled(false);
+            NavigationMetrics.reset();
+        }
+    }
+
+    private static void drawCounts(BadgeRenderer renderer, Canvas canvas) {
+        for (int count = 1; count <= BADGE_COUNTS; count++) {
+            renderer.draw(canvas, BadgeCounts.format(count), 0, 0);
+        }
+    }
+
+    private void frame() {
+        if (mItem.isLayoutRequested()) {
+            mItem.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+            mItem.layout(0, 0, WIDTH, HEIGHT);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.zerdaket.navigation;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * 性能测试的计数工具：按线程统计分配的字节数，并把结果追加到
+ * {@code build/reports/perf/navigation-perf.csv} ，每行为 版本,测试,指标,数值 ，便于对比不同版本。
+ * <p>
+ * 分配统计依赖 HotSpot 的 {@code com.sun.management.ThreadMXBean} ，其他虚拟机上记录为 -1 。
+ */
+final class PerfRecorder {
+
+    private static final String REPORT_FILE = "navigation-perf.csv";
+    private static final int WARMUP_ITERATIONS = 20;
+
+    private PerfRecorder() {
+    }
+
+    /**
+     * @return 当前线程累计分配的字节数，不支持时为 -1
+     */
+    static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotSpotBean = (com.sun.management.ThreadMXBean) bean;
+            if (hotSpotBean.isThreadAllocatedMemorySupported() && hotSpotBean.isThreadAllocatedMemoryEnabled()) {
+                return hotSpotBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 预热后执行 iterations 次，统计平均每次分配的字节数
+     *
+     * @return 每次分配的字节数，不支持时为 -1
+     */
+    static long allocationsPerOp(Runnable operation, int iterations) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run();
+        }
+        long start = allocatedBytes();
+        for (int i = 0; i < iterations; i++) {
+            operation.run();
+        }
+        long end = allocatedBytes();
+        if (start < 0 || end < 0) {
+            return -1;
+        }
+        return (end - start) / iterations;
+    }
+
+    /**
+     * 记录一项指标，同时输出到标准输出
+     *
+     * @param test   测试名
+     * @param metric 指标名
+     * @param value  数值
+     */
+    static synchronized void report(String test, String metric, long value) {
+        String version = System.getProperty("navigation.version", "dev");
+        String line = version + "," + test + "," + metric + "," + value;
+        System.out.println("[perf] " + line);
+        File dir = new File(System.getProperty("navigation.perfReportDir", "build/reports/perf"));
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        Writer writer = null;
+        try {
+            writer = new FileWriter(new File(dir, REPORT_FILE), true);
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException ignored) {
+            // 报告只用于对比，写入失败不影响测试结果
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+}